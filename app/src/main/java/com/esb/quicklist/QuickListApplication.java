@@ -0,0 +1,33 @@
+package com.esb.quicklist;
+
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+
+import com.esb.quicklist.data.QuickListRepository;
+import com.esb.quicklist.storage.PersistenceExecutor;
+import com.esb.quicklist.utilities.IdGenerator;
+
+// Process-wide hooks. Once no screen of the app is visible the process may be
+// killed at any time, so queued writes start going to disk then, on the
+// persistence thread instead of blocking a screen's onStop.
+public class QuickListApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Before the first id is handed out where possible, so ids continue
+        // after the stored high-water mark
+        PersistenceExecutor.submit("init:ids", () -> IdGenerator.init(this));
+        // Creates the database on first launch and copies the preference data
+        // into it, queued behind writes already submitted
+        PersistenceExecutor.submit("open:database", () -> QuickListRepository.getInstance(this).open());
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            PersistenceExecutor.drain();
+        }
+    }
+}
@@ -8,10 +8,13 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.esb.quicklist.utilities.AuthManager;
+import com.esb.quicklist.utilities.BackgroundLoader;
 import com.esb.quicklist.R;
 import com.esb.quicklist.models.ShoppingList;
 import com.google.android.material.textfield.TextInputLayout;
 
+import java.util.List;
+
 public class JoinListActivity extends AppCompatActivity {
 
     private TextInputLayout codeInputLayout;
@@ -19,6 +22,7 @@ public class JoinListActivity extends AppCompatActivity {
     private Button joinButton;
     private TextView joinedListsText; // Changed from myListsText
     private AuthManager authManager;
+    private final BackgroundLoader loader = new BackgroundLoader();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -29,9 +33,16 @@ public class JoinListActivity extends AppCompatActivity {
 
         initializeViews();
         setupListeners();
+        joinedListsText.setText("Loading your lists..."); // Placeholder until the load finishes
         displayJoinedLists(); // Updated method name
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        loader.cancel(); // Nobody is left to show the result
+    }
+
     private void initializeViews() {
         codeInputLayout = findViewById(R.id.codeInputLayout);
         codeEditText = findViewById(R.id.codeEditText);
@@ -71,10 +82,17 @@ public class JoinListActivity extends AppCompatActivity {
         }
     }
 
+    // Build the text in the background, it reads every list of the user
     private void displayJoinedLists() { // Updated method name
+        loader.load(this::buildJoinedListsText, joinedListsText::setText, // Updated variable name
+                error -> joinedListsText.setText("Your lists could not be loaded"));
+    }
+
+    private String buildJoinedListsText() {
         StringBuilder sb = new StringBuilder("My Shopping Lists:\n\n");
 
-        for (ShoppingList list : authManager.getUserShoppingLists()) {
+        List<ShoppingList> userLists = authManager.getUserShoppingLists();
+        for (ShoppingList list : userLists) {
             String creatorText = authManager.isListCreator(list.getListCode()) ?
                     " (Creator)" : " (Member)";
             sb.append("• ").append(list.getListName())
@@ -84,11 +102,11 @@ public class JoinListActivity extends AppCompatActivity {
                     .append("\n\n");
         }
 
-        if (authManager.getUserShoppingLists().isEmpty()) {
+        if (userLists.isEmpty()) {
             sb.append("You haven't joined any lists yet.\n");
             sb.append("Enter a list code above to join one!");
         }
 
-        joinedListsText.setText(sb.toString()); // Updated variable name
+        return sb.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,228 @@
+package com.esb.quicklist.activities;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.esb.quicklist.utilities.LongIntMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Rows keyed by a stable id, with each row's position held by id. A single
+// row is inserted at the end, changed or removed without walking or copying
+// the list, and only that row is notified; a removal renumbers the rows after
+// it. A whole new list is diffed off the main thread, as ListAdapter does.
+// Used from the main thread only.
+public abstract class KeyedListAdapter<T, VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "list-diff");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Replaced, not refilled, by a new list: a running diff may still read the old one
+    private List<T> rows = new ArrayList<>();
+    private final LongIntMap positions = new LongIntMap();
+    // Submitted list whose diff is still running, null when the rows are current
+    private List<T> pendingRows;
+    private int generation;
+
+    protected KeyedListAdapter() {
+        setHasStableIds(true);
+    }
+
+    protected abstract long getRowId(T row);
+
+    protected abstract boolean areContentsTheSame(T oldRow, T newRow);
+
+    // Payload for a partial rebind, or null to bind the whole row
+    protected Object getChangePayload(T oldRow, T newRow) {
+        return null;
+    }
+
+    // Show a new list, diffed against the shown rows so only changed rows are rebound
+    public void submitRows(List<T> newRows) {
+        List<T> submitted = new ArrayList<>(newRows);
+        int submitGeneration = ++generation;
+        if (rows.isEmpty() || submitted.isEmpty()) {
+            show(submitted, null); // Nothing to diff
+            return;
+        }
+
+        pendingRows = submitted;
+        // Not changed until the result is shown, changes go to the pending list meanwhile
+        List<T> shownRows = rows;
+        DIFF_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new RowDiff(shownRows, submitted));
+            mainHandler.post(() -> {
+                if (submitGeneration == generation) {
+                    show(submitted, result);
+                }
+            });
+        });
+    }
+
+    // Rows as last submitted or changed
+    public List<T> getRows() {
+        return Collections.unmodifiableList(pendingRows != null ? pendingRows : rows);
+    }
+
+    // The shown row with the id, or null
+    protected T getRow(long rowId) {
+        if (pendingRows != null) {
+            int position = indexOf(pendingRows, rowId);
+            return position >= 0 ? pendingRows.get(position) : null;
+        }
+        int position = positions.get(rowId);
+        return position != LongIntMap.MISSING ? rows.get(position) : null;
+    }
+
+    protected T getItem(int position) {
+        return rows.get(position);
+    }
+
+    // Add a row at the end, unless one with its id is shown already
+    protected void insertRow(T row) {
+        long rowId = getRowId(row);
+        if (pendingRows != null) {
+            if (indexOf(pendingRows, rowId) < 0) {
+                List<T> changed = new ArrayList<>(pendingRows);
+                changed.add(row);
+                submitRows(changed);
+            }
+            return;
+        }
+        if (positions.containsKey(rowId)) {
+            return;
+        }
+        rows.add(row);
+        positions.put(rowId, rows.size() - 1);
+        notifyItemInserted(rows.size() - 1);
+    }
+
+    // Replace the shown row with the same id, if any
+    protected void updateRow(T row) {
+        long rowId = getRowId(row);
+        if (pendingRows != null) {
+            int position = indexOf(pendingRows, rowId);
+            if (position >= 0) {
+                List<T> changed = new ArrayList<>(pendingRows);
+                changed.set(position, row);
+                submitRows(changed);
+            }
+            return;
+        }
+        int position = positions.get(rowId);
+        if (position == LongIntMap.MISSING) {
+            return;
+        }
+        T oldRow = rows.set(position, row);
+        if (!areContentsTheSame(oldRow, row)) {
+            notifyItemChanged(position, getChangePayload(oldRow, row));
+        }
+    }
+
+    protected void removeRow(long rowId) {
+        if (pendingRows != null) {
+            int position = indexOf(pendingRows, rowId);
+            if (position >= 0) {
+                List<T> changed = new ArrayList<>(pendingRows);
+                changed.remove(position);
+                submitRows(changed);
+            }
+            return;
+        }
+        int position = positions.remove(rowId);
+        if (position == LongIntMap.MISSING) {
+            return;
+        }
+        rows.remove(position);
+        for (int i = position; i < rows.size(); i++) {
+            positions.put(getRowId(rows.get(i)), i);
+        }
+        notifyItemRemoved(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return rows.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getRowId(rows.get(position));
+    }
+
+    private void show(List<T> newRows, DiffUtil.DiffResult result) {
+        pendingRows = null;
+        int oldSize = rows.size();
+        rows = newRows;
+        positions.clear();
+        for (int i = 0; i < rows.size(); i++) {
+            positions.put(getRowId(rows.get(i)), i);
+        }
+
+        if (result != null) {
+            result.dispatchUpdatesTo(this);
+        } else {
+            if (oldSize > 0) {
+                notifyItemRangeRemoved(0, oldSize);
+            }
+            if (!rows.isEmpty()) {
+                notifyItemRangeInserted(0, rows.size());
+            }
+        }
+    }
+
+    // Only while a diff runs, the pending list has no position map
+    private int indexOf(List<T> list, long rowId) {
+        for (int i = 0; i < list.size(); i++) {
+            if (getRowId(list.get(i)) == rowId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private final class RowDiff extends DiffUtil.Callback {
+        private final List<T> oldRows;
+        private final List<T> newRows;
+
+        RowDiff(List<T> oldRows, List<T> newRows) {
+            this.oldRows = oldRows;
+            this.newRows = newRows;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldRows.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newRows.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return getRowId(oldRows.get(oldPosition)) == getRowId(newRows.get(newPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            return KeyedListAdapter.this.areContentsTheSame(oldRows.get(oldPosition), newRows.get(newPosition));
+        }
+
+        @Override
+        public Object getChangePayload(int oldPosition, int newPosition) {
+            return KeyedListAdapter.this.getChangePayload(oldRows.get(oldPosition), newRows.get(newPosition));
+        }
+    }
+}
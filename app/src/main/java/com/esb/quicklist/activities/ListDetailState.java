@@ -0,0 +1,25 @@
+package com.esb.quicklist.activities;
+
+import androidx.lifecycle.ViewModel;
+
+import com.esb.quicklist.utilities.ListSnapshot;
+
+// State of the list detail screen that outlives the activity when it is
+// recreated for a configuration change, such as a rotation or split-screen.
+// The recreated screen shows the kept snapshot instead of reading storage
+// again. Dropped when the screen is finished for good.
+public class ListDetailState extends ViewModel {
+    private ListSnapshot snapshot;
+
+    // The kept snapshot of the list, null if none was loaded yet
+    public ListSnapshot getSnapshot(String listCode) {
+        if (snapshot == null || !snapshot.getListCode().equals(listCode)) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    public void setSnapshot(ListSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+}
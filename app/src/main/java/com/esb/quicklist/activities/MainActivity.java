@@ -10,6 +10,7 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.esb.quicklist.utilities.AuthManager;
+import com.esb.quicklist.utilities.BackgroundLoader;
 import com.esb.quicklist.R;
 import com.esb.quicklist.models.ShoppingList;
 import com.esb.quicklist.models.User;
@@ -21,6 +22,7 @@ public class MainActivity extends AppCompatActivity {
     private Button addButton;
     private Button logoutButton;
     private AuthManager authManager;
+    private final BackgroundLoader loader = new BackgroundLoader();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -34,6 +36,12 @@ public class MainActivity extends AppCompatActivity {
         displayUserInfo();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        loader.cancel(); // Nobody is left to show the result
+    }
+
     private void initializeViews() {
         welcomeText = findViewById(R.id.welcomeText);
         openButton = findViewById(R.id.openButton);
@@ -155,8 +163,14 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // Read the signed-in user in the background, then greet them
     private void displayUserInfo() {
-        User user = authManager.getCurrentUserObject();
+        welcomeText.setText("Welcome!"); // Placeholder until the load finishes
+        loader.load(authManager::getCurrentUserObject, this::showUserInfo,
+                error -> Toast.makeText(this, "Your account could not be loaded", Toast.LENGTH_SHORT).show());
+    }
+
+    private void showUserInfo(User user) {
         if (user != null) {
             String roleText = user.isAdmin() ? " (Admin)" : " (User)";
             welcomeText.setText("Welcome, " + user.getEmail() + roleText + "!");
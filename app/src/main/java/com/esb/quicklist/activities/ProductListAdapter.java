@@ -0,0 +1,163 @@
+package com.esb.quicklist.activities;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CheckBox;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.esb.quicklist.R;
+import com.esb.quicklist.models.Product;
+import com.esb.quicklist.utilities.ProductChange;
+
+import java.util.List;
+import java.util.Objects;
+
+// Checkable product rows of the list detail screen. Rows are recycled and a
+// new product list is diffed against the shown one off the main thread, so
+// only rows whose product changed are rebound. A purchase toggle rebinds only
+// the purchased state.
+public class ProductListAdapter extends KeyedListAdapter<Product, ProductListAdapter.ProductViewHolder> {
+    private static final Object PAYLOAD_PURCHASED = new Object();
+
+    public interface Listener {
+        void onProductClick(Product product);
+
+        void onProductLongClick(Product product);
+
+        void onPurchasedChanged(Product product, boolean purchased);
+    }
+
+    private final Listener listener;
+
+    public ProductListAdapter(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void submitProducts(List<Product> products) {
+        submitRows(products);
+    }
+
+    // Apply one stored change to the shown products, only its row is notified
+    public void applyChange(ProductChange change) {
+        Product product = change.getProduct();
+        switch (change.getType()) {
+            case INSERT:
+                insertRow(product);
+                break;
+            case UPDATE:
+                updateRow(product);
+                break;
+            case REMOVE:
+                removeRow(product.getId());
+                break;
+        }
+    }
+
+    // A live view of the shown products, copy it to keep it
+    public List<Product> getProducts() {
+        return getRows();
+    }
+
+    @Override
+    protected long getRowId(Product product) {
+        return product.getId();
+    }
+
+    @Override
+    protected boolean areContentsTheSame(Product oldProduct, Product newProduct) {
+        return oldProduct.isPurchased() == newProduct.isPurchased() && hasSameText(oldProduct, newProduct);
+    }
+
+    @Override
+    protected Object getChangePayload(Product oldProduct, Product newProduct) {
+        return hasSameText(oldProduct, newProduct) ? PAYLOAD_PURCHASED : null;
+    }
+
+    private static boolean hasSameText(Product oldProduct, Product newProduct) {
+        return oldProduct.getQuantity() == newProduct.getQuantity()
+                && Objects.equals(oldProduct.getName(), newProduct.getName())
+                && Objects.equals(oldProduct.getCategory(), newProduct.getCategory())
+                && Objects.equals(oldProduct.getAddedBy(), newProduct.getAddedBy());
+    }
+
+    @Override
+    public ProductViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_product_checkable, parent, false);
+        return new ProductViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(ProductViewHolder holder, int position) {
+        holder.bind(getItem(position));
+    }
+
+    @Override
+    public void onBindViewHolder(ProductViewHolder holder, int position, List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_PURCHASED)) {
+            holder.bindPurchased(getItem(position));
+        } else {
+            holder.bind(getItem(position));
+        }
+    }
+
+    class ProductViewHolder extends RecyclerView.ViewHolder {
+        private final CheckBox checkBox;
+        private final TextView productNameText;
+        private final TextView quantityText;
+        private final TextView categoryText;
+        private final TextView addedByText;
+        private Product product;
+        private boolean binding;
+
+        ProductViewHolder(View itemView) {
+            super(itemView);
+            checkBox = itemView.findViewById(R.id.checkBox);
+            productNameText = itemView.findViewById(R.id.productNameText);
+            quantityText = itemView.findViewById(R.id.quantityText);
+            categoryText = itemView.findViewById(R.id.categoryText);
+            addedByText = itemView.findViewById(R.id.addedByText);
+
+            // Listeners are set once per row and act on whatever product it shows
+            itemView.setOnClickListener(v -> listener.onProductClick(product));
+            itemView.setOnLongClickListener(v -> {
+                listener.onProductLongClick(product);
+                return true;
+            });
+            // The shown product is not changed here, the screen applies a changed copy
+            checkBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
+                if (!binding && product != null) {
+                    listener.onPurchasedChanged(product, isChecked);
+                    setDimmed(isChecked);
+                }
+            });
+        }
+
+        void bind(Product product) {
+            productNameText.setText(product.getName());
+            quantityText.setText("Qty: " + product.getQuantity());
+            categoryText.setText(product.getCategory());
+            addedByText.setText("Added by: " + product.getAddedBy());
+            bindPurchased(product);
+        }
+
+        void bindPurchased(Product product) {
+            this.product = product;
+            // The listener ignores this, the product already has the state
+            binding = true;
+            checkBox.setChecked(product.isPurchased());
+            binding = false;
+            setDimmed(product.isPurchased());
+        }
+
+        private void setDimmed(boolean dimmed) {
+            float alpha = dimmed ? 0.5f : 1.0f;
+            productNameText.setAlpha(alpha);
+            quantityText.setAlpha(alpha);
+            categoryText.setAlpha(alpha);
+            addedByText.setAlpha(alpha);
+        }
+    }
+}
@@ -3,37 +3,50 @@ package com.esb.quicklist.activities;
 import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Button;
-import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.esb.quicklist.utilities.AuthManager;
+import com.esb.quicklist.utilities.BackgroundLoader;
+import com.esb.quicklist.utilities.ListSnapshot;
+import com.esb.quicklist.utilities.ProductChange;
 import com.esb.quicklist.utilities.ProductManager;
+import com.esb.quicklist.utilities.PurchaseToggleBuffer;
 import com.esb.quicklist.management.ManageListActivity;
 import com.esb.quicklist.R;
 import com.esb.quicklist.models.Product;
-import com.esb.quicklist.models.ShoppingList;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class ShoppingListDetailActivity extends AppCompatActivity {
 
     private TextView listNameText;
     private TextView listCodeText;
-    private LinearLayout productsLayout;
+    private RecyclerView productsRecyclerView;
+    private TextView emptyText;
+    private ProductListAdapter productAdapter;
     private Button addItemButton;
     private Button adminButton;
     private Button backButton;
     private AuthManager authManager;
     private ProductManager productManager;
+    private PurchaseToggleBuffer purchaseToggles;
+    private final BackgroundLoader loader = new BackgroundLoader();
+    private ListDetailState state;
     private String currentListCode;
+    // Shown changes not in the kept snapshot yet, it is brought up to date on stop
+    private boolean snapshotBehind;
+    private String changedStatistics;
     private static final String TAG = "ShoppingListDetail";
 
     @Override
@@ -43,6 +56,12 @@ public class ShoppingListDetailActivity extends AppCompatActivity {
 
         authManager = new AuthManager(this);
         productManager = new ProductManager(this);
+        purchaseToggles = new PurchaseToggleBuffer(productManager, () -> {
+            if (!isDestroyed()) {
+                loadProducts(); // Show what is actually stored
+            }
+        });
+        state = new ViewModelProvider(this).get(ListDetailState.class);
         currentListCode = getIntent().getStringExtra("LIST_CODE");
 
         if (currentListCode == null) {
@@ -53,14 +72,64 @@ public class ShoppingListDetailActivity extends AppCompatActivity {
 
         initializeViews();
         setupListeners();
-        loadListData();
+
+        // Recreated after a configuration change, show what was already read
+        ListSnapshot kept = state.getSnapshot(currentListCode);
+        if (kept != null) {
+            showList(kept);
+            return;
+        }
+
+        // Placeholder until the first snapshot arrives
+        emptyText.setText("Loading items...");
+        emptyText.setVisibility(View.VISIBLE);
         loadProducts();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        loader.cancel(); // Nobody is left to show the result
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Don't leave checkbox changes waiting for the window to close
+        purchaseToggles.flush();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        keepShownProducts();
+    }
+
     private void initializeViews() {
         listNameText = findViewById(R.id.listNameText);
         listCodeText = findViewById(R.id.listCodeText);
-        productsLayout = findViewById(R.id.productsLayout);
+        productsRecyclerView = findViewById(R.id.productsRecyclerView);
+        emptyText = findViewById(R.id.emptyText);
+
+        productAdapter = new ProductListAdapter(new ProductListAdapter.Listener() {
+            @Override
+            public void onProductClick(Product product) {
+                showEditItemDialog(product);
+            }
+
+            @Override
+            public void onProductLongClick(Product product) {
+                showDeleteItemDialog(product);
+            }
+
+            @Override
+            public void onPurchasedChanged(Product product, boolean purchased) {
+                // Stored together with other taps made within a second, shown now
+                showChange(purchaseToggles.toggle(product, purchased));
+            }
+        });
+        productsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        productsRecyclerView.setAdapter(productAdapter);
         addItemButton = findViewById(R.id.addItemButton);
         adminButton = findViewById(R.id.adminButton);
         backButton = findViewById(R.id.backButton);
@@ -80,92 +149,60 @@ public class ShoppingListDetailActivity extends AppCompatActivity {
         backButton.setOnClickListener(v -> finish());
     }
 
-    private void loadListData() {
-        ShoppingList list = authManager.getShoppingList(currentListCode);
-        if (list != null) {
-            listNameText.setText(list.getListName());
-            listCodeText.setText(String.format("Code: %s", list.getListCode()));
-
-            boolean isCreator = authManager.isListCreator(currentListCode);
-            boolean isAdmin = authManager.isCurrentUserAdmin();
-            adminButton.setVisibility(isCreator || isAdmin ? View.VISIBLE : View.GONE);
-        }
+    // Read the list and its products in the background, then show them
+    private void loadProducts() {
+        purchaseToggles.flush(); // Reload must see the latest checkbox state
+        loader.load(() -> ListSnapshot.load(authManager, productManager, currentListCode), snapshot -> {
+            state.setSnapshot(snapshot);
+            snapshotBehind = false;
+            changedStatistics = null;
+            showList(snapshot);
+        }, error -> {
+            emptyText.setText("Items of this list could not be loaded");
+            emptyText.setVisibility(View.VISIBLE);
+        });
     }
 
-    private void loadProducts() {
-        productsLayout.removeAllViews();
+    private void showList(ListSnapshot snapshot) {
+        if (snapshot.exists()) {
+            listNameText.setText(snapshot.getListName());
+            listCodeText.setText(String.format("Code: %s", snapshot.getListCode()));
+            adminButton.setVisibility(snapshot.canCurrentUserManage() ? View.VISIBLE : View.GONE);
+        }
 
-        List<Product> products = productManager.getProductsForList(currentListCode);
+        List<Product> products = snapshot.getProducts();
+        // Diffed against the shown list, only changed rows are rebound
+        productAdapter.submitProducts(products);
+        emptyText.setText(snapshot.hasReadError()
+                ? "Items of this list could not be loaded"
+                : "No items yet. Tap 'Add Item' to start!");
+        emptyText.setVisibility(products.isEmpty() ? View.VISIBLE : View.GONE);
+    }
 
-        if (products.isEmpty()) {
-            TextView emptyText = new TextView(this);
-            emptyText.setText("No items yet. Tap 'Add Item' to start!");
-            emptyText.setPadding(16, 16, 16, 16);
-            emptyText.setTextSize(16);
-            emptyText.setGravity(View.TEXT_ALIGNMENT_CENTER);
-            productsLayout.addView(emptyText);
+    // Show a stored add, edit or delete without reading the list again
+    private void showChange(ProductChange change) {
+        if (loader.isLoading()) {
+            loadProducts(); // The running load may have read the list before the change
             return;
         }
 
-        for (Product product : products) {
-            addProductItemView(product);
+        productAdapter.applyChange(change);
+        emptyText.setVisibility(productAdapter.getProducts().isEmpty() ? View.VISIBLE : View.GONE);
+        if (change.getListStatistics() != null) {
+            changedStatistics = change.getListStatistics(); // A toggle has none until it is stored
         }
+        snapshotBehind = true;
     }
 
-    private void addProductItemView(Product product) {
-        View productView = LayoutInflater.from(this).inflate(R.layout.item_product_checkable, null);
-
-        CheckBox checkBox = productView.findViewById(R.id.checkBox);
-        TextView productNameText = productView.findViewById(R.id.productNameText);
-        TextView quantityText = productView.findViewById(R.id.quantityText);
-        TextView categoryText = productView.findViewById(R.id.categoryText);
-        TextView addedByText = productView.findViewById(R.id.addedByText);
-
-        productNameText.setText(product.getName());
-        quantityText.setText("Qty: " + product.getQuantity());
-        categoryText.setText(product.getCategory());
-        addedByText.setText("Added by: " + product.getAddedBy());
-
-        checkBox.setChecked(product.isPurchased());
-        if (product.isPurchased()) {
-            productNameText.setAlpha(0.5f);
-            quantityText.setAlpha(0.5f);
-            categoryText.setAlpha(0.5f);
-            addedByText.setAlpha(0.5f);
+    // Keep the shown products for a recreated screen. Copied once here
+    // rather than on every change, the adapter's list is live.
+    private void keepShownProducts() {
+        ListSnapshot kept = state.getSnapshot(currentListCode);
+        if (snapshotBehind && kept != null) {
+            String statistics = changedStatistics != null ? changedStatistics : kept.getStatistics();
+            state.setSnapshot(kept.withProducts(new ArrayList<>(productAdapter.getProducts()), statistics));
         }
-
-        // Make the entire item clickable for editing
-        productView.setOnClickListener(v -> showEditItemDialog(product));
-
-        // Add long press listener for delete
-        productView.setOnLongClickListener(v -> {
-            showDeleteItemDialog(product);
-            return true; // Return true to indicate the click was handled
-        });
-
-        checkBox.setOnClickListener(v -> {
-            // Don't trigger edit when checking/unchecking
-            v.setClickable(false);
-        });
-
-        checkBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            product.setPurchased(isChecked);
-            productManager.updateProduct(product);
-            if (isChecked) {
-                productNameText.setAlpha(0.5f);
-                quantityText.setAlpha(0.5f);
-                categoryText.setAlpha(0.5f);
-                addedByText.setAlpha(0.5f);
-            } else {
-                productNameText.setAlpha(1.0f);
-                quantityText.setAlpha(1.0f);
-                categoryText.setAlpha(1.0f);
-                addedByText.setAlpha(1.0f);
-            }
-            buttonView.setClickable(true);
-        });
-
-        productsLayout.addView(productView);
+        snapshotBehind = false;
     }
 
     // Delete confirmation dialog for long press
@@ -186,20 +223,22 @@ public class ShoppingListDetailActivity extends AppCompatActivity {
     private void deleteProductNow(Product product) {
         Log.d(TAG, "Attempting to delete product: " + product.getName() + " ID: " + product.getId());
 
-        if (product.getId() == null || product.getId().isEmpty()) {
-            Log.e(TAG, "Product ID is null or empty!");
+        if (product.getId() <= 0) {
+            Log.e(TAG, "Product ID is not set!");
             Toast.makeText(this, "Error: Invalid product ID", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        boolean deleted = productManager.deleteProduct(product.getId());
-        Log.d(TAG, "Delete result: " + deleted);
+        purchaseToggles.discard(product.getId()); // A pending change must not target a deleted product
+        ProductChange deleted = productManager.deleteProduct(product.getId());
+        Log.d(TAG, "Delete result: " + (deleted != null));
 
-        if (deleted) {
+        if (deleted != null) {
             Toast.makeText(this, "✓ Deleted: " + product.getName(), Toast.LENGTH_SHORT).show();
-            loadProducts(); // Refresh the list
+            showChange(deleted); // Remove just this row
         } else {
             Toast.makeText(this, "Failed to delete item", Toast.LENGTH_SHORT).show();
+            loadProducts(); // Its discarded toggle may not be stored
         }
     }
 
@@ -255,9 +294,10 @@ public class ShoppingListDetailActivity extends AppCompatActivity {
                 // Log the ID before saving
                 Log.d(TAG, "Adding new product - ID: " + newProduct.getId() + ", Name: " + name);
 
-                if (productManager.addProduct(newProduct)) {
+                ProductChange added = productManager.addProduct(newProduct);
+                if (added != null) {
                     Toast.makeText(this, "✓ Added: " + name, Toast.LENGTH_SHORT).show();
-                    loadProducts();
+                    showChange(added);
                 } else {
                     Toast.makeText(this, "Failed to add item", Toast.LENGTH_SHORT).show();
                 }
@@ -304,13 +344,20 @@ public class ShoppingListDetailActivity extends AppCompatActivity {
 
             try {
                 int quantity = Integer.parseInt(quantityStr);
-                product.setName(name);
-                product.setQuantity(quantity);
-                product.setCategory(categoryInput.getText().toString().trim());
-
-                if (productManager.updateProduct(product)) {
+                // Edit a copy, the shown row is diffed against the stored product
+                Product edited = new Product(product);
+                edited.setName(name);
+                edited.setQuantity(quantity);
+                edited.setCategory(categoryInput.getText().toString().trim());
+
+                // The shown product carries its pending toggle, a retry must not overwrite the edit
+                purchaseToggles.discard(edited.getId());
+                ProductChange updated = productManager.updateProduct(edited);
+                if (updated != null) {
                     Toast.makeText(this, "✓ Updated: " + name, Toast.LENGTH_SHORT).show();
-                    loadProducts();
+                    showChange(updated);
+                } else {
+                    loadProducts(); // Its discarded toggle may not be stored
                 }
             } catch (NumberFormatException e) {
                 Toast.makeText(this, "Please enter a valid number", Toast.LENGTH_SHORT).show();
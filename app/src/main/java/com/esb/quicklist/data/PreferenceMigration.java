@@ -0,0 +1,73 @@
+package com.esb.quicklist.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.esb.quicklist.models.Product;
+import com.esb.quicklist.models.ShoppingList;
+import com.esb.quicklist.models.User;
+import com.esb.quicklist.utilities.AuthManager;
+import com.esb.quicklist.utilities.ProductManager;
+
+import java.util.Set;
+
+// Copies users, lists, memberships and products from the preference storage
+// into a freshly created database. Products of a list that no longer exists
+// cannot be reached from any screen and are left out.
+class PreferenceMigration {
+    private static final String TAG = "PreferenceMigration";
+
+    private final Context context;
+
+    PreferenceMigration(Context context) {
+        this.context = context;
+    }
+
+    void migrate(SQLiteDatabase db) {
+        AuthManager authManager = new AuthManager(context);
+        ProductManager productManager = new ProductManager(context);
+
+        int users = 0;
+        for (User user : authManager.getAllUsers()) {
+            db.insertWithOnConflict(QuickListDatabase.TABLE_USERS, null,
+                    QuickListRepository.toValues(user), SQLiteDatabase.CONFLICT_IGNORE);
+            users++;
+        }
+
+        int lists = 0;
+        int products = 0;
+        Set<String> productListCodes = productManager.getAllListCodes();
+        for (ShoppingList list : authManager.getAllShoppingLists()) {
+            productListCodes.remove(list.getListCode());
+            db.insertWithOnConflict(QuickListDatabase.TABLE_LISTS, null,
+                    QuickListRepository.toValues(list), SQLiteDatabase.CONFLICT_REPLACE);
+            for (String memberEmail : list.getMemberEmails()) {
+                ContentValues member = new ContentValues();
+                member.put("list_code", list.getListCode());
+                member.put("email", memberEmail);
+                db.insertWithOnConflict(QuickListDatabase.TABLE_MEMBERS, null, member, SQLiteDatabase.CONFLICT_IGNORE);
+            }
+            lists++;
+
+            for (Product product : productManager.getProductsForList(list.getListCode())) {
+                db.insertWithOnConflict(QuickListDatabase.TABLE_PRODUCTS, null,
+                        QuickListRepository.toValues(product), SQLiteDatabase.CONFLICT_REPLACE);
+                products++;
+            }
+        }
+
+        int orphans = 0;
+        for (String listCode : productListCodes) {
+            orphans += productManager.getProductsForList(listCode).size();
+        }
+        if (orphans > 0) {
+            Log.e(TAG, "MIGRATION: Skipped " + orphans + " products of " + productListCodes.size()
+                    + " lists that no longer exist");
+        }
+
+        Log.d(TAG, "MIGRATION: Copied " + users + " users, " + lists + " lists and "
+                + products + " products into the database");
+    }
+}
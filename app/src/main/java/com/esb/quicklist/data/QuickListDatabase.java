@@ -0,0 +1,86 @@
+package com.esb.quicklist.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+// Schema for the SQLite repository. The first open also copies over
+// everything stored in preferences so far. The preferences stay the source of
+// truth, so an upgrade drops the tables and copies everything again.
+public class QuickListDatabase extends SQLiteOpenHelper {
+    private static final String DATABASE_NAME = "quicklist.db";
+    private static final int DATABASE_VERSION = 2; // 2: integer product ids
+    private static final String TAG = "QuickListDatabase";
+
+    static final String TABLE_USERS = "users";
+    static final String TABLE_LISTS = "shopping_lists";
+    static final String TABLE_MEMBERS = "list_members";
+    static final String TABLE_PRODUCTS = "products";
+
+    private final Context context;
+
+    public QuickListDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.context = context;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.setForeignKeyConstraintsEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_USERS + " ("
+                + "email TEXT PRIMARY KEY NOT NULL, "
+                + "password TEXT NOT NULL, "
+                + "role TEXT NOT NULL DEFAULT 'USER')");
+
+        db.execSQL("CREATE TABLE " + TABLE_LISTS + " ("
+                + "list_code TEXT PRIMARY KEY NOT NULL, "
+                + "list_name TEXT NOT NULL, "
+                + "creator_email TEXT NOT NULL, "
+                + "category TEXT NOT NULL DEFAULT 'General')");
+        db.execSQL("CREATE INDEX idx_lists_creator ON " + TABLE_LISTS + " (creator_email)");
+
+        // Primary key doubles as the list_code index, the second index serves
+        // "lists this user joined"
+        db.execSQL("CREATE TABLE " + TABLE_MEMBERS + " ("
+                + "list_code TEXT NOT NULL REFERENCES " + TABLE_LISTS + " (list_code) ON DELETE CASCADE, "
+                + "email TEXT NOT NULL, "
+                + "PRIMARY KEY (list_code, email))");
+        db.execSQL("CREATE INDEX idx_members_email ON " + TABLE_MEMBERS + " (email)");
+
+        // No foreign key on list_code: products may be stored for a list code
+        // before the list itself, same as the preference storage allows
+        db.execSQL("CREATE TABLE " + TABLE_PRODUCTS + " ("
+                + "id INTEGER PRIMARY KEY NOT NULL, "
+                + "list_code TEXT NOT NULL, "
+                + "name TEXT NOT NULL, "
+                + "category TEXT NOT NULL, "
+                + "quantity INTEGER NOT NULL, "
+                + "purchased INTEGER NOT NULL DEFAULT 0, "
+                + "added_by TEXT NOT NULL, "
+                + "notes TEXT NOT NULL DEFAULT '', "
+                + "price REAL NOT NULL DEFAULT 0, "
+                + "added_date INTEGER NOT NULL)");
+        // Both start with list_code, so "products of a list" uses either one
+        db.execSQL("CREATE INDEX idx_products_list_category ON " + TABLE_PRODUCTS + " (list_code, category)");
+        db.execSQL("CREATE INDEX idx_products_list_purchased ON " + TABLE_PRODUCTS + " (list_code, purchased)");
+
+        // Runs inside the create transaction, a failed copy is retried on next launch
+        new PreferenceMigration(context).migrate(db);
+        Log.d(TAG, "Created database version " + DATABASE_VERSION);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        Log.d(TAG, "Upgrading database from version " + oldVersion + ", copying preferences again");
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_PRODUCTS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_MEMBERS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_LISTS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
+        onCreate(db);
+    }
+}
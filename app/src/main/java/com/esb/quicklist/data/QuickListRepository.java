@@ -0,0 +1,372 @@
+package com.esb.quicklist.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.esb.quicklist.models.Product;
+import com.esb.quicklist.models.ShoppingList;
+import com.esb.quicklist.models.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// SQLite-backed alternative to the preference storage of AuthManager and
+// ProductManager. Offers the same operations, each answered through an index
+// instead of a scan over every stored record. Opened at app start, which
+// creates the database and copies the preference data on first launch.
+// Screens still read and write the preference storage.
+public class QuickListRepository {
+    private static final String TAG = "QuickListRepository";
+
+    private static volatile QuickListRepository instance;
+
+    private final QuickListDatabase database;
+
+    // Tests open their own, the shared one is getInstance()
+    QuickListRepository(Context context) {
+        database = new QuickListDatabase(context.getApplicationContext() != null
+                ? context.getApplicationContext() : context);
+    }
+
+    // One open helper per process, SQLite connections are not meant to be duplicated
+    public static QuickListRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (QuickListRepository.class) {
+                if (instance == null) {
+                    instance = new QuickListRepository(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Create or upgrade the database now, copying the preference data if it
+    // is new. Slow on first launch, call it from a background thread.
+    public boolean open() {
+        try {
+            db();
+            return true;
+        } catch (SQLException e) {
+            Log.e(TAG, "Error opening database: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // ==================== USERS ====================
+
+    public boolean registerUser(String email, String password, User.UserRole role) {
+        long rowId = db().insertWithOnConflict(QuickListDatabase.TABLE_USERS, null,
+                toValues(new User(email, password, role)), SQLiteDatabase.CONFLICT_IGNORE);
+        return rowId != -1;
+    }
+
+    // True when the email is registered with this password
+    public boolean checkLogin(String email, String password) {
+        return DatabaseUtils.longForQuery(db(),
+                "SELECT COUNT(*) FROM " + QuickListDatabase.TABLE_USERS + " WHERE email = ? AND password = ?",
+                new String[] {email, password}) > 0;
+    }
+
+    public boolean userExists(String email) {
+        return DatabaseUtils.longForQuery(db(),
+                "SELECT COUNT(*) FROM " + QuickListDatabase.TABLE_USERS + " WHERE email = ?",
+                new String[] {email}) > 0;
+    }
+
+    // User with created and joined lists filled in, or null if unknown
+    public User getUserByEmail(String email) {
+        SQLiteDatabase db = db();
+        User user;
+        try (Cursor cursor = db.query(QuickListDatabase.TABLE_USERS, new String[] {"password", "role"},
+                "email = ?", new String[] {email}, null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            user = new User(email, cursor.getString(0), parseRole(cursor.getString(1)));
+        }
+
+        try (Cursor cursor = db.query(QuickListDatabase.TABLE_LISTS, new String[] {"list_code"},
+                "creator_email = ?", new String[] {email}, null, null, null)) {
+            while (cursor.moveToNext()) {
+                user.addCreatedList(cursor.getString(0));
+            }
+        }
+        try (Cursor cursor = db.query(QuickListDatabase.TABLE_MEMBERS, new String[] {"list_code"},
+                "email = ?", new String[] {email}, null, null, null)) {
+            while (cursor.moveToNext()) {
+                user.addJoinedList(cursor.getString(0));
+            }
+        }
+        return user;
+    }
+
+    // ==================== SHOPPING LISTS ====================
+
+    // Insert or replace a list together with its members
+    public boolean saveShoppingList(ShoppingList shoppingList) {
+        SQLiteDatabase db = db();
+        db.beginTransaction();
+        try {
+            db.insertWithOnConflict(QuickListDatabase.TABLE_LISTS, null,
+                    toValues(shoppingList), SQLiteDatabase.CONFLICT_REPLACE);
+            db.delete(QuickListDatabase.TABLE_MEMBERS, "list_code = ?", new String[] {shoppingList.getListCode()});
+            for (String memberEmail : shoppingList.getMemberEmails()) {
+                insertMember(db, shoppingList.getListCode(), memberEmail);
+            }
+            db.setTransactionSuccessful();
+            return true;
+        } catch (SQLException e) {
+            Log.e(TAG, "Error saving shopping list: " + e.getMessage());
+            return false;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public ShoppingList getShoppingList(String listCode) {
+        SQLiteDatabase db = db();
+        try (Cursor cursor = db.query(QuickListDatabase.TABLE_LISTS,
+                new String[] {"list_code", "list_name", "creator_email", "category"},
+                "list_code = ?", new String[] {listCode}, null, null, null)) {
+            return cursor.moveToFirst() ? readShoppingList(db, cursor) : null;
+        }
+    }
+
+    public boolean updateShoppingList(String listCode, String newListName) {
+        ContentValues values = new ContentValues();
+        values.put("list_name", newListName);
+        return db().update(QuickListDatabase.TABLE_LISTS, values, "list_code = ?", new String[] {listCode}) > 0;
+    }
+
+    // Removes the list, its memberships (cascade) and its products in one transaction
+    public boolean deleteShoppingList(String listCode) {
+        SQLiteDatabase db = db();
+        db.beginTransaction();
+        try {
+            db.delete(QuickListDatabase.TABLE_PRODUCTS, "list_code = ?", new String[] {listCode});
+            int removed = db.delete(QuickListDatabase.TABLE_LISTS, "list_code = ?", new String[] {listCode});
+            db.setTransactionSuccessful();
+            return removed > 0;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public boolean addMember(String listCode, String email) {
+        try {
+            return insertMember(db(), listCode, email) != -1;
+        } catch (SQLException e) {
+            // Unknown list code
+            Log.e(TAG, "Error adding member: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public boolean removeMember(String listCode, String email) {
+        return db().delete(QuickListDatabase.TABLE_MEMBERS, "list_code = ? AND email = ?",
+                new String[] {listCode, email}) > 0;
+    }
+
+    public List<String> getListMembers(String listCode) {
+        ShoppingList list = getShoppingList(listCode);
+        return list != null ? list.getMemberEmails() : new ArrayList<>();
+    }
+
+    // Lists the user is a member of, including the ones they created
+    public List<ShoppingList> getUserShoppingLists(String email) {
+        return queryShoppingLists("SELECT l.list_code, l.list_name, l.creator_email, l.category FROM "
+                + QuickListDatabase.TABLE_LISTS + " l JOIN " + QuickListDatabase.TABLE_MEMBERS
+                + " m ON m.list_code = l.list_code WHERE m.email = ?", email);
+    }
+
+    public List<ShoppingList> getCreatedShoppingLists(String email) {
+        return queryShoppingLists("SELECT list_code, list_name, creator_email, category FROM "
+                + QuickListDatabase.TABLE_LISTS + " WHERE creator_email = ?", email);
+    }
+
+    // ==================== PRODUCTS ====================
+
+    public boolean addProduct(Product product) {
+        try {
+            return db().insertWithOnConflict(QuickListDatabase.TABLE_PRODUCTS, null,
+                    toValues(product), SQLiteDatabase.CONFLICT_IGNORE) != -1;
+        } catch (SQLException e) {
+            Log.e(TAG, "Error adding product: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Products of a list in the order they were added
+    public List<Product> getProductsForList(String listCode) {
+        List<Product> products = new ArrayList<>();
+        try (Cursor cursor = db().query(QuickListDatabase.TABLE_PRODUCTS,
+                new String[] {"id", "name", "category", "quantity", "purchased", "added_by",
+                        "list_code", "notes", "price", "added_date"},
+                "list_code = ?", new String[] {listCode}, null, null, "rowid")) {
+            while (cursor.moveToNext()) {
+                Product product = new Product(cursor.getString(1), cursor.getString(2), cursor.getInt(3),
+                        cursor.getString(5), cursor.getString(6), cursor.getString(7), cursor.getDouble(8));
+                product.setId(cursor.getLong(0));
+                product.setPurchased(cursor.getInt(4) != 0);
+                product.setAddedDate(cursor.getLong(9));
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    // Same fields as ProductManager.updateProduct, scoped to the product's list
+    public boolean updateProduct(Product updatedProduct) {
+        try (SQLiteStatement statement = db().compileStatement("UPDATE " + QuickListDatabase.TABLE_PRODUCTS
+                + " SET name = ?, category = ?, quantity = ?, purchased = ?, notes = ?, price = ?"
+                + " WHERE id = ? AND list_code = ?")) {
+            statement.bindString(1, updatedProduct.getName());
+            statement.bindString(2, updatedProduct.getCategory());
+            statement.bindLong(3, updatedProduct.getQuantity());
+            statement.bindLong(4, updatedProduct.isPurchased() ? 1 : 0);
+            statement.bindString(5, nonNull(updatedProduct.getNotes()));
+            statement.bindDouble(6, updatedProduct.getPrice());
+            statement.bindLong(7, updatedProduct.getId());
+            statement.bindString(8, updatedProduct.getListCode());
+            return statement.executeUpdateDelete() > 0;
+        }
+    }
+
+    public boolean deleteProduct(long productId) {
+        try (SQLiteStatement statement = db().compileStatement(
+                "DELETE FROM " + QuickListDatabase.TABLE_PRODUCTS + " WHERE id = ?")) {
+            statement.bindLong(1, productId);
+            return statement.executeUpdateDelete() > 0;
+        }
+    }
+
+    // Returns how many products were removed
+    public int deleteProductsForList(String listCode) {
+        return db().delete(QuickListDatabase.TABLE_PRODUCTS, "list_code = ?", new String[] {listCode});
+    }
+
+    // Answered from the (list_code, category) index alone
+    public List<String> getCategoriesForList(String listCode) {
+        List<String> categories = new ArrayList<>();
+        try (Cursor cursor = db().rawQuery("SELECT DISTINCT category FROM " + QuickListDatabase.TABLE_PRODUCTS
+                + " WHERE list_code = ? AND category <> 'system'", new String[] {listCode})) {
+            while (cursor.moveToNext()) {
+                String category = cursor.getString(0).trim();
+                if (!category.isEmpty() && !categories.contains(category)) {
+                    categories.add(category);
+                }
+            }
+        }
+        return categories;
+    }
+
+    public String getListStatistics(String listCode) {
+        int totalProducts = 0;
+        int purchasedCount = 0;
+        double totalCost = 0.0;
+        try (Cursor cursor = db().rawQuery("SELECT COUNT(*), TOTAL(purchased), TOTAL(quantity * price) FROM "
+                + QuickListDatabase.TABLE_PRODUCTS + " WHERE list_code = ?", new String[] {listCode})) {
+            if (cursor.moveToFirst()) {
+                totalProducts = cursor.getInt(0);
+                purchasedCount = (int) cursor.getDouble(1);
+                totalCost = cursor.getDouble(2);
+            }
+        }
+
+        return String.format("Total Products: %d\nPurchased: %d\nRemaining: %d\nTotal Cost: $%.2f",
+                totalProducts, purchasedCount, totalProducts - purchasedCount, totalCost);
+    }
+
+    // Number of unpurchased products, answered from the (list_code, purchased) index
+    public int getRemainingCount(String listCode) {
+        return (int) DatabaseUtils.longForQuery(db(), "SELECT COUNT(*) FROM " + QuickListDatabase.TABLE_PRODUCTS
+                + " WHERE list_code = ? AND purchased = 0", new String[] {listCode});
+    }
+
+    // ==================== HELPERS ====================
+
+    private SQLiteDatabase db() {
+        return database.getWritableDatabase();
+    }
+
+    private long insertMember(SQLiteDatabase db, String listCode, String email) {
+        ContentValues values = new ContentValues();
+        values.put("list_code", listCode);
+        values.put("email", email);
+        return db.insertWithOnConflict(QuickListDatabase.TABLE_MEMBERS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    private List<ShoppingList> queryShoppingLists(String sql, String email) {
+        SQLiteDatabase db = db();
+        List<ShoppingList> lists = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(sql, new String[] {email})) {
+            while (cursor.moveToNext()) {
+                lists.add(readShoppingList(db, cursor));
+            }
+        }
+        return lists;
+    }
+
+    // Cursor columns: list_code, list_name, creator_email, category
+    private ShoppingList readShoppingList(SQLiteDatabase db, Cursor cursor) {
+        ShoppingList shoppingList = new ShoppingList(cursor.getString(0), cursor.getString(1),
+                cursor.getString(2), cursor.getString(3));
+        try (Cursor members = db.query(QuickListDatabase.TABLE_MEMBERS, new String[] {"email"},
+                "list_code = ?", new String[] {shoppingList.getListCode()}, null, null, "rowid")) {
+            while (members.moveToNext()) {
+                shoppingList.addMember(members.getString(0));
+            }
+        }
+        return shoppingList;
+    }
+
+    private static User.UserRole parseRole(String role) {
+        try {
+            return User.UserRole.valueOf(role);
+        } catch (IllegalArgumentException e) {
+            return User.UserRole.USER;
+        }
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    static ContentValues toValues(User user) {
+        ContentValues values = new ContentValues();
+        values.put("email", user.getEmail());
+        values.put("password", user.getPassword());
+        values.put("role", user.getRole().name());
+        return values;
+    }
+
+    static ContentValues toValues(ShoppingList shoppingList) {
+        ContentValues values = new ContentValues();
+        values.put("list_code", shoppingList.getListCode());
+        values.put("list_name", shoppingList.getListName());
+        values.put("creator_email", shoppingList.getCreatorEmail());
+        values.put("category", shoppingList.getCategory() != null ? shoppingList.getCategory() : "General");
+        return values;
+    }
+
+    static ContentValues toValues(Product product) {
+        ContentValues values = new ContentValues();
+        values.put("id", product.getId());
+        values.put("list_code", product.getListCode());
+        values.put("name", product.getName());
+        values.put("category", product.getCategory());
+        values.put("quantity", product.getQuantity());
+        values.put("purchased", product.isPurchased() ? 1 : 0);
+        values.put("added_by", product.getAddedBy());
+        values.put("notes", nonNull(product.getNotes()));
+        values.put("price", product.getPrice());
+        values.put("added_date", product.getAddedDate());
+        return values;
+    }
+}
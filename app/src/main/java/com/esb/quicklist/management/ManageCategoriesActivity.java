@@ -11,14 +11,18 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.esb.quicklist.utilities.AuthManager;
+import com.esb.quicklist.utilities.BackgroundLoader;
 import com.esb.quicklist.utilities.ProductManager;
 import com.esb.quicklist.R;
 import com.esb.quicklist.models.Product;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 public class ManageCategoriesActivity extends AppCompatActivity {
@@ -30,6 +34,7 @@ public class ManageCategoriesActivity extends AppCompatActivity {
     private ProductManager productManager;
     private String currentListCode;
     private List<String> categories = new ArrayList<>();
+    private final BackgroundLoader loader = new BackgroundLoader();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -48,9 +53,16 @@ public class ManageCategoriesActivity extends AppCompatActivity {
 
         initializeViews();
         setupListeners();
+        showMessage("Loading categories..."); // Placeholder until the load finishes
         loadCategories();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        loader.cancel(); // Nobody is left to show the result
+    }
+
     private void initializeViews() {
         categoriesContainer = findViewById(R.id.categoriesContainer);
         backButton = findViewById(R.id.backButton);
@@ -62,38 +74,67 @@ public class ManageCategoriesActivity extends AppCompatActivity {
         addCategoryButton.setOnClickListener(v -> showAddCategoryDialog());
     }
 
+    // Category names and product counts of the list, read off the main thread
+    private static final class CategorySummary {
+        final List<String> categories;
+        final Map<String, Integer> productCounts;
+
+        CategorySummary(List<String> categories, Map<String, Integer> productCounts) {
+            this.categories = Collections.unmodifiableList(categories);
+            this.productCounts = Collections.unmodifiableMap(productCounts);
+        }
+    }
+
     private void loadCategories() {
-        categoriesContainer.removeAllViews();
+        loader.load(this::readCategories, this::showCategories,
+                error -> showMessage("Categories could not be loaded"));
+    }
 
+    // Runs on the loader thread
+    private CategorySummary readCategories() {
         // Get unique categories from products
         List<Product> products = productManager.getProductsForList(currentListCode);
         Set<String> uniqueCategories = new HashSet<>();
+        Map<String, Integer> productCounts = new HashMap<>();
 
         for (Product product : products) {
             String category = product.getCategory().trim();
             if (!category.isEmpty() && !category.equals("General") && !category.equals("system")) {
                 uniqueCategories.add(category);
             }
+
+            // Count products per category in the same pass
+            Integer count = productCounts.get(product.getCategory());
+            productCounts.put(product.getCategory(), count == null ? 1 : count + 1);
         }
+        return new CategorySummary(new ArrayList<>(uniqueCategories), productCounts);
+    }
 
-        categories = new ArrayList<>(uniqueCategories);
+    private void showCategories(CategorySummary summary) {
+        categoriesContainer.removeAllViews();
+        categories = summary.categories;
 
         if (categories.isEmpty()) {
-            TextView emptyText = new TextView(this);
-            emptyText.setText("No categories yet. Add some products with categories first!");
-            emptyText.setPadding(16, 16, 16, 16);
-            emptyText.setTextSize(16);
-            emptyText.setGravity(View.TEXT_ALIGNMENT_CENTER);
-            categoriesContainer.addView(emptyText);
+            showMessage("No categories yet. Add some products with categories first!");
             return;
         }
 
         for (String category : categories) {
-            addCategoryView(category);
+            Integer count = summary.productCounts.get(category);
+            addCategoryView(category, count == null ? 0 : count);
         }
     }
 
-    private void addCategoryView(String category) {
+    private void showMessage(String message) {
+        TextView messageText = new TextView(this);
+        messageText.setText(message);
+        messageText.setPadding(16, 16, 16, 16);
+        messageText.setTextSize(16);
+        messageText.setGravity(View.TEXT_ALIGNMENT_CENTER);
+        categoriesContainer.addView(messageText);
+    }
+
+    private void addCategoryView(String category, int count) {
         View categoryView = getLayoutInflater().inflate(R.layout.item_category, null);
 
         TextView categoryNameTextView = categoryView.findViewById(R.id.categoryNameTextView);
@@ -104,14 +145,6 @@ public class ManageCategoriesActivity extends AppCompatActivity {
         // Set category info
         categoryNameTextView.setText(category);
 
-        // Count products in this category
-        List<Product> products = productManager.getProductsForList(currentListCode);
-        int count = 0;
-        for (Product product : products) {
-            if (product.getCategory().equals(category)) {
-                count++;
-            }
-        }
         productCountTextView.setText(count + " product(s)");
 
         // Setup button listeners
@@ -160,7 +193,7 @@ public class ManageCategoriesActivity extends AppCompatActivity {
                     0.0
             );
 
-            if (productManager.addProduct(dummyProduct)) {
+            if (productManager.addProduct(dummyProduct) != null) {
                 // Now immediately delete the dummy product
                 productManager.deleteProduct(dummyProduct.getId());
 
@@ -206,21 +239,20 @@ public class ManageCategoriesActivity extends AppCompatActivity {
                 return;
             }
 
-            // Update all products with the old category to the new category
+            // Update all products with the old category to the new category in one write
             List<Product> products = productManager.getProductsForList(currentListCode);
-            boolean updated = false;
-            int updatedCount = 0;
+            ProductManager.Batch batch = productManager.beginBatch();
 
             for (Product product : products) {
                 if (product.getCategory().equals(oldCategory)) {
                     product.setCategory(newCategory);
-                    if (productManager.updateProduct(product)) {
-                        updated = true;
-                        updatedCount++;
-                    }
+                    batch.update(product);
                 }
             }
 
+            int updatedCount = batch.size();
+            boolean updated = updatedCount > 0 && batch.commit();
+
             if (updated) {
                 Toast.makeText(this, "✓ Updated " + updatedCount + " product(s) to category: " + newCategory, Toast.LENGTH_SHORT).show();
                 loadCategories();
@@ -273,18 +305,17 @@ public class ManageCategoriesActivity extends AppCompatActivity {
 
     private void moveProductsToGeneralAndDeleteCategory(String category, int productCount) {
         List<Product> products = productManager.getProductsForList(currentListCode);
-        int movedCount = 0;
+        ProductManager.Batch batch = productManager.beginBatch();
 
         for (Product product : products) {
             if (product.getCategory().equals(category)) {
                 product.setCategory("General");
-                if (productManager.updateProduct(product)) {
-                    movedCount++;
-                }
+                batch.update(product);
             }
         }
 
-        if (movedCount > 0) {
+        int movedCount = batch.size();
+        if (movedCount > 0 && batch.commit()) {
             Toast.makeText(this, "✓ Moved " + movedCount + " product(s) to 'General' and deleted category: " + category, Toast.LENGTH_SHORT).show();
             loadCategories();
         } else {
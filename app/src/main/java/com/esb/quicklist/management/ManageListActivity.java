@@ -4,8 +4,8 @@ import android.content.ClipData;
 import android.content.ClipboardManager;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.util.Log;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.LinearLayout;
@@ -16,14 +16,13 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.esb.quicklist.utilities.AuthManager;
+import com.esb.quicklist.utilities.BackgroundLoader;
+import com.esb.quicklist.utilities.ListSnapshot;
 import com.esb.quicklist.utilities.ProductManager;
 import com.esb.quicklist.R;
 import com.esb.quicklist.models.ShoppingList;
 import com.esb.quicklist.activities.MainActivity;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
 import java.util.List;
 
 public class ManageListActivity extends AppCompatActivity {
@@ -40,7 +39,8 @@ public class ManageListActivity extends AppCompatActivity {
     private AuthManager authManager;
     private ProductManager productManager;
     private String currentListCode;
-    private SharedPreferences sharedPreferences;
+    private final BackgroundLoader loader = new BackgroundLoader();
+    private static final String TAG = "ManageListActivity";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -59,8 +59,14 @@ public class ManageListActivity extends AppCompatActivity {
 
         initializeViews();
         setupListeners();
+        membersText.setText("Loading members..."); // Placeholder until the load finishes
         displayListInfo();
-        setupActionButtons();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        loader.cancel(); // Nobody is left to show the result
     }
 
     private void initializeViews() {
@@ -221,104 +227,25 @@ public class ManageListActivity extends AppCompatActivity {
     }
 
     private boolean deleteListFromStorage() {
-        try {
-            // Get SharedPreferences
-            sharedPreferences = getSharedPreferences("UserPrefs", MODE_PRIVATE);
-
-            // 1. Delete list from shopping_lists
-            String shoppingListsJson = sharedPreferences.getString("shopping_lists", "{}");
-            JSONObject allLists = new JSONObject(shoppingListsJson);
-
-            if (allLists.has(currentListCode)) {
-                allLists.remove(currentListCode);
-                sharedPreferences.edit()
-                        .putString("shopping_lists", allLists.toString())
-                        .apply();
-            }
-
-            // 2. Delete list from all users' joined/created lists
-            removeListFromAllUsers();
-
-            // 3. Delete all products in this list
-            deleteAllProductsInList();
-
-            return true;
-
-        } catch (Exception e) {
-            e.printStackTrace();
+        // 1. Delete all products in this list. If they cannot be read the list
+        // stays, so its products are not left behind without it.
+        if (deleteAllProductsInList() < 0) {
             return false;
         }
-    }
-
-    private void removeListFromAllUsers() {
-        try {
-            String usersJson = sharedPreferences.getString("registered_users", "[]");
-            JSONArray usersArray = new JSONArray(usersJson);
-
-            for (int i = 0; i < usersArray.length(); i++) {
-                JSONObject userObject = usersArray.getJSONObject(i);
 
-                // Remove from joinedLists
-                if (userObject.has("joinedLists")) {
-                    String joinedLists = userObject.getString("joinedLists");
-                    if (joinedLists.contains(currentListCode)) {
-                        String newJoinedLists = removeListFromString(joinedLists, currentListCode);
-                        userObject.put("joinedLists", newJoinedLists);
-                    }
-                }
-
-                // Remove from createdLists
-                if (userObject.has("createdLists")) {
-                    String createdLists = userObject.getString("createdLists");
-                    if (createdLists.contains(currentListCode)) {
-                        String newCreatedLists = removeListFromString(createdLists, currentListCode);
-                        userObject.put("createdLists", newCreatedLists);
-                    }
-                }
-            }
-
-            // Save updated users
-            sharedPreferences.edit()
-                    .putString("registered_users", usersArray.toString())
-                    .apply();
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        // 2. Delete list and drop it from all users' joined/created lists
+        return authManager.deleteShoppingList(currentListCode);
     }
 
-    private String removeListFromString(String listString, String listToRemove) {
-        if (listString == null || listString.isEmpty()) {
-            return "";
-        }
-
-        String[] lists = listString.split(",");
-        StringBuilder result = new StringBuilder();
-
-        for (String list : lists) {
-            if (!list.trim().equals(listToRemove) && !list.trim().isEmpty()) {
-                if (result.length() > 0) {
-                    result.append(",");
-                }
-                result.append(list.trim());
-            }
-        }
-
-        return result.toString();
-    }
-
-    private void deleteAllProductsInList() {
-        try {
-            // Get products for this list
-            List<com.esb.quicklist.models.Product> products = productManager.getProductsForList(currentListCode);
-
-            // Delete each product
-            for (com.esb.quicklist.models.Product product : products) {
-                productManager.deleteProduct(product.getId());
-            }
-        } catch (Exception e) {
-            // Continue even if product deletion fails
+    private int deleteAllProductsInList() {
+        // Drops the whole list's products in one write instead of one delete per product
+        int removedCount = productManager.deleteProductsForList(currentListCode);
+        if (removedCount < 0) {
+            Log.e(TAG, "Products of list " + currentListCode + " could not be read, left on disk");
+        } else {
+            Log.d(TAG, "Deleted " + removedCount + " product(s) from list: " + currentListCode);
         }
+        return removedCount;
     }
 
     private void showUpdateListDialog() {
@@ -375,28 +302,30 @@ public class ManageListActivity extends AppCompatActivity {
         updateListBtn.setText("Update List Name");
     }
 
+    // Read the list and its members in the background, then show them
     private void displayListInfo() {
-        ShoppingList list = authManager.getShoppingList(currentListCode);
-        if (list != null) {
-            listNameText.setText("List: " + list.getListName());
-            listCodeText.setText("Code: " + list.getListCode());
+        loader.load(() -> ListSnapshot.load(authManager, productManager, currentListCode), this::showListInfo,
+                error -> membersText.setText("This list could not be loaded"));
+    }
 
-            StringBuilder membersBuilder = new StringBuilder("Members:\n\n");
-            List<String> members = authManager.getListMembers(currentListCode);
+    private void showListInfo(ListSnapshot snapshot) {
+        if (snapshot.exists()) {
+            listNameText.setText("List: " + snapshot.getListName());
+            listCodeText.setText("Code: " + snapshot.getListCode());
 
-            for (String memberEmail : members) {
-                String creatorIndicator = list.isCreator(memberEmail) ? " 👑 (Creator)" : " 👤 (Member)";
+            StringBuilder membersBuilder = new StringBuilder("Members:\n\n");
+            for (String memberEmail : snapshot.getMembers()) {
+                String creatorIndicator = snapshot.isCreator(memberEmail) ? " 👑 (Creator)" : " 👤 (Member)";
                 membersBuilder.append("• ").append(memberEmail).append(creatorIndicator).append("\n");
             }
 
             membersBuilder.append("\n👤 Tap here to remove members");
             membersText.setText(membersBuilder.toString());
         }
+        setupActionButtons(snapshot.isCurrentUserCreator());
     }
 
-    private void setupActionButtons() {
-        boolean isCreator = authManager.isListCreator(currentListCode);
-
+    private void setupActionButtons(boolean isCreator) {
         deleteListBtn.setVisibility(isCreator ? android.view.View.VISIBLE : android.view.View.GONE);
         updateListBtn.setVisibility(isCreator ? android.view.View.VISIBLE : android.view.View.GONE);
         removeMemberBtn.setVisibility(isCreator ? android.view.View.VISIBLE : android.view.View.GONE);
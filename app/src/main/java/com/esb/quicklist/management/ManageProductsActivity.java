@@ -9,8 +9,13 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.esb.quicklist.utilities.AuthManager;
+import com.esb.quicklist.utilities.BackgroundLoader;
+import com.esb.quicklist.utilities.ListSnapshot;
+import com.esb.quicklist.utilities.ProductChange;
 import com.esb.quicklist.utilities.ProductManager;
 import com.esb.quicklist.R;
 import com.esb.quicklist.models.Product;
@@ -19,13 +24,16 @@ import java.util.List;
 
 public class ManageProductsActivity extends AppCompatActivity {
 
-    private LinearLayout productsContainer;
+    private RecyclerView productsRecyclerView;
+    private TextView emptyText;
+    private ManagedProductAdapter productAdapter;
     private Button backButton;
     private Button addProductButton;
     private TextView statisticsText;
     private AuthManager authManager;
     private ProductManager productManager;
     private String currentListCode;
+    private final BackgroundLoader loader = new BackgroundLoader();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -44,12 +52,21 @@ public class ManageProductsActivity extends AppCompatActivity {
 
         initializeViews();
         setupListeners();
+        // Placeholder until the first snapshot arrives, the statistics show "Loading statistics..."
+        emptyText.setText("Loading products...");
+        emptyText.setVisibility(View.VISIBLE);
         loadProducts();
-        updateStatistics();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        loader.cancel(); // Nobody is left to show the result
     }
 
     private void initializeViews() {
-        productsContainer = findViewById(R.id.productsContainer);
+        productsRecyclerView = findViewById(R.id.productsRecyclerView);
+        emptyText = findViewById(R.id.emptyText);
         backButton = findViewById(R.id.backButton);
         addProductButton = findViewById(R.id.addProductButton);
         statisticsText = findViewById(R.id.statisticsText);
@@ -58,64 +75,57 @@ public class ManageProductsActivity extends AppCompatActivity {
     private void setupListeners() {
         backButton.setOnClickListener(v -> finish());
         addProductButton.setOnClickListener(v -> showAddProductDialog());
-    }
 
-    private void loadProducts() {
-        productsContainer.removeAllViews();
+        productAdapter = new ManagedProductAdapter(new ManagedProductAdapter.Listener() {
+            @Override
+            public void onEditProduct(Product product) {
+                showEditProductDialog(product);
+            }
 
-        List<Product> products = productManager.getProductsForList(currentListCode);
+            @Override
+            public void onDeleteProduct(Product product) {
+                showDeleteProductDialog(product);
+            }
 
-        if (products.isEmpty()) {
-            TextView emptyText = new TextView(this);
-            emptyText.setText("No products yet. Add some products!");
-            emptyText.setPadding(16, 16, 16, 16);
-            emptyText.setTextSize(16);
-            productsContainer.addView(emptyText);
-            return;
-        }
+            @Override
+            public void onTogglePurchased(Product product) {
+                toggleProductPurchase(product);
+            }
+        });
+        productsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        productsRecyclerView.setAdapter(productAdapter);
+    }
 
-        for (Product product : products) {
-            addProductView(product);
-        }
+    // Read the products and statistics in the background, then show them
+    private void loadProducts() {
+        loader.load(() -> ListSnapshot.load(authManager, productManager, currentListCode), this::showProducts,
+                error -> {
+                    emptyText.setText("Products of this list could not be loaded");
+                    emptyText.setVisibility(View.VISIBLE);
+                });
     }
 
-    private void addProductView(Product product) {
-        View productView = getLayoutInflater().inflate(R.layout.item_product, null);
-
-        TextView productName = productView.findViewById(R.id.productName);
-        TextView productDetails = productView.findViewById(R.id.productDetails);
-        Button editBtn = productView.findViewById(R.id.editBtn);
-        Button deleteBtn = productView.findViewById(R.id.deleteBtn);
-        Button toggleBtn = productView.findViewById(R.id.toggleBtn);
-
-        // Set product info
-        productName.setText(product.getName());
-        String details = "Quantity: " + product.getQuantity() +
-                " | Category: " + product.getCategory() +
-                " | Price: $" + String.format("%.2f", product.getPrice()) +
-                " | Added by: " + product.getAddedBy();
-        if (!product.getNotes().isEmpty()) {
-            details += "\nNotes: " + product.getNotes();
-        }
-        productDetails.setText(details);
+    private void showProducts(ListSnapshot snapshot) {
+        List<Product> products = snapshot.getProducts();
+        // Diffed against the shown rows, unchanged rows are not rebound
+        productAdapter.submitProducts(products);
+        emptyText.setText(snapshot.hasReadError()
+                ? "Products of this list could not be loaded"
+                : "No products yet. Add some products!");
+        emptyText.setVisibility(products.isEmpty() ? View.VISIBLE : View.GONE);
+        statisticsText.setText(snapshot.getStatistics());
+    }
 
-        // Set purchased status
-        if (product.isPurchased()) {
-            productName.setAlpha(0.5f);
-            productDetails.setAlpha(0.5f);
-            toggleBtn.setText("Mark as Not Purchased");
-        } else {
-            productName.setAlpha(1.0f);
-            productDetails.setAlpha(1.0f);
-            toggleBtn.setText("Mark as Purchased");
+    // Show a stored add, edit, toggle or delete without reading the list again
+    private void showChange(ProductChange change) {
+        if (loader.isLoading()) {
+            loadProducts(); // The running load may have read the list before the change
+            return;
         }
 
-        // Setup button listeners
-        editBtn.setOnClickListener(v -> showEditProductDialog(product));
-        deleteBtn.setOnClickListener(v -> showDeleteProductDialog(product));
-        toggleBtn.setOnClickListener(v -> toggleProductPurchase(product));
-
-        productsContainer.addView(productView);
+        productAdapter.applyChange(change);
+        emptyText.setVisibility(productAdapter.getProductCount() == 0 ? View.VISIBLE : View.GONE);
+        statisticsText.setText(change.getListStatistics());
     }
 
     private void showAddProductDialog() {
@@ -179,10 +189,10 @@ public class ManageProductsActivity extends AppCompatActivity {
 
                 Product newProduct = new Product(name, category, quantity, currentUser, currentListCode, notes, price);
 
-                if (productManager.addProduct(newProduct)) {
+                ProductChange added = productManager.addProduct(newProduct);
+                if (added != null) {
                     Toast.makeText(this, "✓ Product added: " + name, Toast.LENGTH_SHORT).show();
-                    loadProducts();
-                    updateStatistics();
+                    showChange(added);
                 } else {
                     Toast.makeText(this, "Failed to add product", Toast.LENGTH_SHORT).show();
                 }
@@ -251,16 +261,18 @@ public class ManageProductsActivity extends AppCompatActivity {
                     category = "General";
                 }
 
-                product.setName(name);
-                product.setQuantity(quantity);
-                product.setCategory(category);
-                product.setPrice(price);
-                product.setNotes(notes);
+                // Edit a copy, the shown row is diffed against the stored product
+                Product edited = new Product(product);
+                edited.setName(name);
+                edited.setQuantity(quantity);
+                edited.setCategory(category);
+                edited.setPrice(price);
+                edited.setNotes(notes);
 
-                if (productManager.updateProduct(product)) {
+                ProductChange updated = productManager.updateProduct(edited);
+                if (updated != null) {
                     Toast.makeText(this, "✓ Product updated: " + name, Toast.LENGTH_SHORT).show();
-                    loadProducts();
-                    updateStatistics();
+                    showChange(updated);
                 } else {
                     Toast.makeText(this, "Failed to update product", Toast.LENGTH_SHORT).show();
                 }
@@ -278,10 +290,10 @@ public class ManageProductsActivity extends AppCompatActivity {
                 .setTitle("Delete Product")
                 .setMessage("Are you sure you want to delete \"" + product.getName() + "\"?")
                 .setPositiveButton("Delete", (dialog, which) -> {
-                    if (productManager.deleteProduct(product.getId())) {
+                    ProductChange deleted = productManager.deleteProduct(product.getId());
+                    if (deleted != null) {
                         Toast.makeText(this, "✓ Deleted: " + product.getName(), Toast.LENGTH_SHORT).show();
-                        loadProducts();
-                        updateStatistics();
+                        showChange(deleted);
                     } else {
                         Toast.makeText(this, "Failed to delete product", Toast.LENGTH_SHORT).show();
                     }
@@ -291,19 +303,15 @@ public class ManageProductsActivity extends AppCompatActivity {
     }
 
     private void toggleProductPurchase(Product product) {
-        product.setPurchased(!product.isPurchased());
-        if (productManager.updateProduct(product)) {
-            String status = product.isPurchased() ? "purchased" : "not purchased";
+        Product toggled = new Product(product);
+        toggled.setPurchased(!product.isPurchased());
+        ProductChange updated = productManager.updateProduct(toggled);
+        if (updated != null) {
+            String status = toggled.isPurchased() ? "purchased" : "not purchased";
             Toast.makeText(this, "✓ Marked as " + status + ": " + product.getName(), Toast.LENGTH_SHORT).show();
-            loadProducts();
-            updateStatistics();
+            showChange(updated);
         } else {
             Toast.makeText(this, "Failed to update status", Toast.LENGTH_SHORT).show();
         }
     }
-
-    private void updateStatistics() {
-        String stats = productManager.getListStatistics(currentListCode);
-        statisticsText.setText(stats);
-    }
 }
\ No newline at end of file
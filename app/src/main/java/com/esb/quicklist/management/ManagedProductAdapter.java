@@ -0,0 +1,196 @@
+package com.esb.quicklist.management;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.esb.quicklist.R;
+import com.esb.quicklist.activities.KeyedListAdapter;
+import com.esb.quicklist.models.Product;
+import com.esb.quicklist.utilities.ProductChange;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Product rows of the admin products screen. Rows are recycled, keyed by the
+// product id, and diffed off the main thread. A purchase toggle rebinds only
+// the purchased state, and the details text is built once per product change
+// instead of on every bind.
+public class ManagedProductAdapter extends KeyedListAdapter<ManagedProductAdapter.ProductRow, ManagedProductAdapter.ProductViewHolder> {
+    private static final Object PAYLOAD_PURCHASED = new Object();
+
+    public interface Listener {
+        void onEditProduct(Product product);
+
+        void onDeleteProduct(Product product);
+
+        void onTogglePurchased(Product product);
+    }
+
+    // A product plus the display text of its row
+    static final class ProductRow {
+        final Product product;
+        final String details;
+
+        ProductRow(Product product) {
+            this(product, buildDetails(product));
+        }
+
+        private ProductRow(Product product, String details) {
+            this.product = product;
+            this.details = details;
+        }
+
+        // Same row text for the new copy of the product, keeping the built details
+        ProductRow reuseFor(Product newProduct) {
+            return new ProductRow(newProduct, details);
+        }
+
+        boolean hasSameText(Product other) {
+            return Objects.equals(product.getName(), other.getName())
+                    && product.getQuantity() == other.getQuantity()
+                    && Objects.equals(product.getCategory(), other.getCategory())
+                    && product.getPrice() == other.getPrice()
+                    && Objects.equals(product.getAddedBy(), other.getAddedBy())
+                    && Objects.equals(product.getNotes(), other.getNotes());
+        }
+
+        private static String buildDetails(Product product) {
+            StringBuilder details = new StringBuilder()
+                    .append("Quantity: ").append(product.getQuantity())
+                    .append(" | Category: ").append(product.getCategory())
+                    .append(" | Price: $").append(String.format("%.2f", product.getPrice()))
+                    .append(" | Added by: ").append(product.getAddedBy());
+            if (!product.getNotes().isEmpty()) {
+                details.append("\nNotes: ").append(product.getNotes());
+            }
+            return details.toString();
+        }
+    }
+
+    private final Listener listener;
+
+    public ManagedProductAdapter(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Show the products, reusing the built text of rows whose product did not change
+    public void submitProducts(List<Product> products) {
+        Map<Long, ProductRow> shownRows = new HashMap<>();
+        for (ProductRow row : getRows()) {
+            shownRows.put(row.product.getId(), row);
+        }
+
+        List<ProductRow> rows = new ArrayList<>(products.size());
+        for (Product product : products) {
+            ProductRow shown = shownRows.get(product.getId());
+            rows.add(shown != null && shown.hasSameText(product) ? shown.reuseFor(product) : new ProductRow(product));
+        }
+        submitRows(rows);
+    }
+
+    // Apply one stored change to the shown rows, only the changed row's text is built
+    public void applyChange(ProductChange change) {
+        Product product = change.getProduct();
+        switch (change.getType()) {
+            case INSERT:
+                insertRow(new ProductRow(product));
+                break;
+            case UPDATE:
+                ProductRow shown = getRow(product.getId());
+                if (shown != null) {
+                    updateRow(shown.hasSameText(product) ? shown.reuseFor(product) : new ProductRow(product));
+                }
+                break;
+            case REMOVE:
+                removeRow(product.getId());
+                break;
+        }
+    }
+
+    public int getProductCount() {
+        return getRows().size();
+    }
+
+    @Override
+    protected long getRowId(ProductRow row) {
+        return row.product.getId();
+    }
+
+    @Override
+    protected boolean areContentsTheSame(ProductRow oldRow, ProductRow newRow) {
+        return oldRow.product.isPurchased() == newRow.product.isPurchased() && hasSameText(oldRow, newRow);
+    }
+
+    @Override
+    protected Object getChangePayload(ProductRow oldRow, ProductRow newRow) {
+        return hasSameText(oldRow, newRow) ? PAYLOAD_PURCHASED : null;
+    }
+
+    private static boolean hasSameText(ProductRow oldRow, ProductRow newRow) {
+        return oldRow.details.equals(newRow.details)
+                && Objects.equals(oldRow.product.getName(), newRow.product.getName());
+    }
+
+    @Override
+    public ProductViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_product, parent, false);
+        return new ProductViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(ProductViewHolder holder, int position) {
+        holder.bind(getItem(position));
+    }
+
+    @Override
+    public void onBindViewHolder(ProductViewHolder holder, int position, List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_PURCHASED)) {
+            holder.bindPurchased(getItem(position).product);
+        } else {
+            holder.bind(getItem(position));
+        }
+    }
+
+    class ProductViewHolder extends RecyclerView.ViewHolder {
+        private final TextView productName;
+        private final TextView productDetails;
+        private final Button toggleBtn;
+        private Product product;
+
+        ProductViewHolder(View itemView) {
+            super(itemView);
+            productName = itemView.findViewById(R.id.productName);
+            productDetails = itemView.findViewById(R.id.productDetails);
+            toggleBtn = itemView.findViewById(R.id.toggleBtn);
+            Button editBtn = itemView.findViewById(R.id.editBtn);
+            Button deleteBtn = itemView.findViewById(R.id.deleteBtn);
+
+            // Set once per row, they act on whatever product the row shows
+            editBtn.setOnClickListener(v -> listener.onEditProduct(product));
+            deleteBtn.setOnClickListener(v -> listener.onDeleteProduct(product));
+            toggleBtn.setOnClickListener(v -> listener.onTogglePurchased(product));
+        }
+
+        void bind(ProductRow row) {
+            productName.setText(row.product.getName());
+            productDetails.setText(row.details);
+            bindPurchased(row.product);
+        }
+
+        void bindPurchased(Product product) {
+            this.product = product;
+            float alpha = product.isPurchased() ? 0.5f : 1.0f;
+            productName.setAlpha(alpha);
+            productDetails.setAlpha(alpha);
+            toggleBtn.setText(product.isPurchased() ? "Mark as Not Purchased" : "Mark as Purchased");
+        }
+    }
+}
@@ -1,20 +1,22 @@
 package com.esb.quicklist.models;
 
+import com.esb.quicklist.utilities.IdGenerator;
+
 public class Category {
-    private String id;
+    private long id;
     private String name;
     private String listCode;
     private String createdBy;
 
     public Category(String name, String listCode, String createdBy) {
-        this.id = String.valueOf(System.currentTimeMillis());
+        this.id = IdGenerator.nextId();
         this.name = name;
         this.listCode = listCode;
         this.createdBy = createdBy;
     }
 
     // Getters and Setters
-    public String getId() { return id; }
+    public long getId() { return id; }
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
     public String getListCode() { return listCode; }
@@ -1,7 +1,9 @@
 package com.esb.quicklist.models;
 
+import com.esb.quicklist.utilities.IdGenerator;
+
 public class Product {
-    private String id;
+    private long id;
     private String name;
     private String category;
     private int quantity;
@@ -13,7 +15,7 @@ public class Product {
     private double price;
 
     public Product(String name, String category, int quantity, String addedBy, String listCode) {
-        this.id = String.valueOf(System.currentTimeMillis());
+        this.id = IdGenerator.nextId();
         this.name = name;
         this.category = category;
         this.quantity = quantity;
@@ -26,7 +28,7 @@ public class Product {
     }
 
     public Product(String name, String category, int quantity, String addedBy, String listCode, String notes, double price) {
-        this.id = String.valueOf(System.currentTimeMillis());
+        this.id = IdGenerator.nextId();
         this.name = name;
         this.category = category;
         this.quantity = quantity;
@@ -38,9 +40,22 @@ public class Product {
         this.price = price;
     }
 
+    public Product(Product other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.category = other.category;
+        this.quantity = other.quantity;
+        this.purchased = other.purchased;
+        this.addedBy = other.addedBy;
+        this.listCode = other.listCode;
+        this.addedDate = other.addedDate;
+        this.notes = other.notes;
+        this.price = other.price;
+    }
+
     // Getters and Setters
-    public String getId() { return id; }
-    public void setId(String id) { this.id = id; } // ADD THIS SETTER
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; } // ADD THIS SETTER
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
     public String getCategory() { return category; }
@@ -31,6 +31,15 @@ public class ShoppingList {
         this.createdDate = String.valueOf(System.currentTimeMillis());
     }
 
+    public ShoppingList(ShoppingList other) {
+        this.listCode = other.listCode;
+        this.listName = other.listName;
+        this.creatorEmail = other.creatorEmail;
+        this.memberEmails = new ArrayList<>(other.memberEmails);
+        this.category = other.category;
+        this.createdDate = other.createdDate;
+    }
+
     // Getters and Setters
     public String getListCode() {
         return listCode;
@@ -1,11 +1,15 @@
 package com.esb.quicklist.models;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 public class User {
     private String email;
     private String password;
     private UserRole role;
-    private String createdLists; // Comma-separated list of shopping lists created by this user (as admin)
-    private String joinedLists; // Comma-separated list of shopping lists this user has joined
+    private Set<String> createdLists; // Codes of shopping lists created by this user (as admin)
+    private Set<String> joinedLists; // Codes of shopping lists this user has joined
 
     public enum UserRole {
         USER,
@@ -16,16 +20,24 @@ public class User {
         this.email = email;
         this.password = password;
         this.role = UserRole.USER;
-        this.createdLists = "";
-        this.joinedLists = "";
+        this.createdLists = new LinkedHashSet<>();
+        this.joinedLists = new LinkedHashSet<>();
     }
 
     public User(String email, String password, UserRole role) {
         this.email = email;
         this.password = password;
         this.role = role;
-        this.createdLists = "";
-        this.joinedLists = "";
+        this.createdLists = new LinkedHashSet<>();
+        this.joinedLists = new LinkedHashSet<>();
+    }
+
+    public User(User other) {
+        this.email = other.email;
+        this.password = other.password;
+        this.role = other.role;
+        this.createdLists = new LinkedHashSet<>(other.createdLists);
+        this.joinedLists = new LinkedHashSet<>(other.joinedLists);
     }
 
     public String getEmail() {
@@ -44,28 +56,22 @@ public class User {
         this.role = role;
     }
 
-    public String getCreatedLists() {
-        return createdLists;
+    // Read-only view in the order the lists were added
+    public Set<String> getCreatedLists() {
+        return Collections.unmodifiableSet(createdLists);
     }
 
     public void addCreatedList(String listCode) {
-        if (createdLists.isEmpty()) {
-            createdLists = listCode;
-        } else {
-            createdLists += "," + listCode;
-        }
+        createdLists.add(listCode);
     }
 
-    public String getJoinedLists() {
-        return joinedLists;
+    // Read-only view in the order the lists were joined
+    public Set<String> getJoinedLists() {
+        return Collections.unmodifiableSet(joinedLists);
     }
 
     public void addJoinedList(String listCode) {
-        if (joinedLists.isEmpty()) {
-            joinedLists = listCode;
-        } else {
-            joinedLists += "," + listCode;
-        }
+        joinedLists.add(listCode);
     }
 
     public boolean isAdmin() {
@@ -85,18 +91,10 @@ public class User {
     }
 
     public void removeJoinedList(String listCode) {
-        if (joinedLists.contains(listCode)) {
-            String[] lists = joinedLists.split(",");
-            StringBuilder newJoinedLists = new StringBuilder();
-            for (String list : lists) {
-                if (!list.trim().equals(listCode)) {
-                    if (newJoinedLists.length() > 0) {
-                        newJoinedLists.append(",");
-                    }
-                    newJoinedLists.append(list.trim());
-                }
-            }
-            joinedLists = newJoinedLists.toString();
-        }
+        joinedLists.remove(listCode);
+    }
+
+    public void removeCreatedList(String listCode) {
+        createdLists.remove(listCode);
     }
 }
\ No newline at end of file
@@ -0,0 +1,286 @@
+package com.esb.quicklist.storage;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Backend that keeps each store as one JSON object file in a directory of our
+// choosing. The file is always replaced through a synced temp file and a
+// rename, then the directory is synced, so a crash leaves either the old or
+// the new document.
+//
+// Writes are group-committed: a change schedules a write GROUP_COMMIT_MS
+// later, and every change made until the write starts shares its one fsync.
+// apply() returns at once, commit() waits for the write that includes it.
+public class FileStore extends MapBackedStore {
+    private static final String STORE_SUFFIX = ".json";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+    private static final long GROUP_COMMIT_MS = 5;
+    private static final String TAG = "FileStore";
+
+    // One writer for every file store, so writes and deletes never overlap
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "file-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File file;
+    private long version;        // Bumped by every change
+    private long writtenVersion; // Last version that reached the disk
+    private long failedVersion;  // Last version whose write failed
+    private boolean writeScheduled;
+    private boolean deleted;
+    // Set when a file that could not be read could not be moved aside either,
+    // writing would replace data we may still recover
+    private boolean unwritable;
+    private long commitCount;
+    private long syncCount;
+
+    public FileStore(File file) {
+        this.file = file;
+        load();
+    }
+
+    // One store file per name in the directory. Instances are shared per name
+    // so two managers opening the same store see each other's writes.
+    public static StoreFactory factory(File directory) {
+        return factory(directory, null);
+    }
+
+    // Same, but a store that has no file yet first takes over the entries of
+    // the legacy backend's store of the same name, which is then deleted
+    public static StoreFactory factory(File directory, StoreFactory legacy) {
+        Map<String, FileStore> stores = new HashMap<>();
+        return new StoreFactory() {
+            @Override
+            public KeyValueStore open(String name) {
+                synchronized (stores) {
+                    FileStore store = stores.get(name);
+                    if (store == null) {
+                        File storeFile = new File(directory, name + STORE_SUFFIX);
+                        boolean isNew = !storeFile.exists();
+                        store = new FileStore(storeFile);
+                        if (isNew && legacy != null) {
+                            store.migrateFrom(legacy, name);
+                        }
+                        stores.put(name, store);
+                    }
+                    return store;
+                }
+            }
+
+            @Override
+            public void delete(String name) {
+                synchronized (stores) {
+                    FileStore store = stores.remove(name);
+                    if (store != null) {
+                        store.markDeleted();
+                    }
+                    // On the writer thread, so a write already under way finishes first
+                    File storeFile = new File(directory, name + STORE_SUFFIX);
+                    runOnWriter(() -> {
+                        if (storeFile.exists() && !storeFile.delete()) {
+                            Log.e(TAG, "Could not delete store " + name);
+                        }
+                    });
+                    if (legacy != null) {
+                        legacy.delete(name);
+                    }
+                }
+            }
+        };
+    }
+
+    // Wait until every write scheduled so far is on disk
+    public static void flushAll() {
+        try {
+            WRITER.schedule(() -> {}, GROUP_COMMIT_MS, TimeUnit.MILLISECONDS).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Error flushing stores: " + e.getMessage());
+        }
+    }
+
+    public synchronized String getStats() {
+        return file.getName() + " commits=" + commitCount + " syncs=" + syncCount;
+    }
+
+    private void migrateFrom(StoreFactory legacy, String name) {
+        Map<String, String> legacyEntries = legacy.open(name).scan("");
+        if (legacyEntries.isEmpty()) {
+            return;
+        }
+
+        Batch batch = batch();
+        for (Map.Entry<String, String> entry : legacyEntries.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+        }
+        // Only drop the old copy once the new one is on disk
+        if (batch.commit()) {
+            legacy.delete(name);
+            Log.d(TAG, "Moved " + legacyEntries.size() + " entries of " + name + " to " + file.getName());
+        } else {
+            Log.e(TAG, "Could not move " + name + ", keeping the old copy");
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+
+        byte[] data = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    break;
+                }
+                offset += read;
+            }
+
+            JSONObject json = new JSONObject(new String(data, 0, offset, StandardCharsets.UTF_8));
+            Iterator<String> keys = json.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                entries.put(key, json.getString(key));
+            }
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Error loading store " + file.getName() + ": " + e.getMessage());
+            entries.clear();
+            moveAside();
+        }
+    }
+
+    // Keep an unreadable file as <name>.corrupt so the next write starts a new
+    // one instead of replacing it. An older copy there is kept too.
+    private void moveAside() {
+        File corrupt = new File(file.getPath() + CORRUPT_SUFFIX);
+        for (int i = 1; corrupt.exists(); i++) {
+            corrupt = new File(file.getPath() + CORRUPT_SUFFIX + "." + i);
+        }
+        if (file.renameTo(corrupt)) {
+            FileSync.syncDirectory(file.getParentFile());
+            Log.e(TAG, "Moved unreadable store to " + corrupt.getName());
+        } else {
+            Log.e(TAG, "Could not move unreadable store " + file.getName() + ", not writing it");
+            unwritable = true;
+        }
+    }
+
+    @Override
+    protected boolean persist() {
+        version++;
+        commitCount++;
+        if (!writeScheduled && !deleted) {
+            writeScheduled = true;
+            WRITER.schedule(this::write, GROUP_COMMIT_MS, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    @Override
+    protected synchronized boolean awaitPersisted() {
+        long target = version;
+        while (writtenVersion < target && failedVersion < target && !deleted) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return writtenVersion >= target;
+    }
+
+    private synchronized void markDeleted() {
+        deleted = true;
+        notifyAll();
+    }
+
+    // Runs on the writer thread. Changes made while the file is written go
+    // into the next write.
+    private void write() {
+        String json;
+        long writing;
+        synchronized (this) {
+            writeScheduled = false;
+            if (deleted) {
+                return;
+            }
+            if (unwritable) {
+                failedVersion = version;
+                notifyAll();
+                return;
+            }
+            json = new JSONObject(entries).toString();
+            writing = version;
+        }
+
+        boolean written = writeFile(json.getBytes(StandardCharsets.UTF_8));
+
+        synchronized (this) {
+            if (written) {
+                writtenVersion = writing;
+                syncCount++;
+            } else {
+                failedVersion = writing;
+            }
+            notifyAll();
+        }
+    }
+
+    private boolean writeFile(byte[] data) {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.exists() && !directory.mkdirs()) {
+            Log.e(TAG, "Could not create store directory: " + directory);
+            return false;
+        }
+
+        File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(data);
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing store " + file.getName() + ": " + e.getMessage());
+            tempFile.delete();
+            return false;
+        }
+
+        if (!tempFile.renameTo(file)) {
+            Log.e(TAG, "Could not replace store " + file.getName());
+            tempFile.delete();
+            return false;
+        }
+        return FileSync.syncDirectory(file.getParentFile());
+    }
+
+    private static void runOnWriter(Runnable task) {
+        try {
+            WRITER.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Error on store writer: " + e.getMessage());
+        }
+    }
+}
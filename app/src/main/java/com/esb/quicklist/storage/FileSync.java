@@ -0,0 +1,38 @@
+package com.esb.quicklist.storage;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileDescriptor;
+
+// fsync for directories, which java.io cannot open. A rename is only durable
+// once the directory holding the file is synced as well.
+public final class FileSync {
+    private static final String TAG = "FileSync";
+
+    private FileSync() {}
+
+    // Returns false if the directory could not be synced
+    public static boolean syncDirectory(File directory) {
+        FileDescriptor fd = null;
+        try {
+            fd = Os.open(directory.getPath(), OsConstants.O_RDONLY, 0);
+            Os.fsync(fd);
+            return true;
+        } catch (ErrnoException e) {
+            Log.e(TAG, "Could not sync directory " + directory + ": " + e.getMessage());
+            return false;
+        } finally {
+            if (fd != null) {
+                try {
+                    Os.close(fd);
+                } catch (ErrnoException e) {
+                    Log.e(TAG, "Could not close directory " + directory + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.esb.quicklist.storage;
+
+import java.util.Map;
+
+// String key-value store the data layer persists through. Backends decide
+// where the data lives (SharedPreferences, a file, memory).
+public interface KeyValueStore {
+
+    // Value for the key, or defaultValue if it is not set
+    String get(String key, String defaultValue);
+
+    boolean contains(String key);
+
+    // All entries whose key starts with the prefix ("" for every entry)
+    Map<String, String> scan(String prefix);
+
+    void put(String key, String value);
+
+    void delete(String key);
+
+    // Group several changes into one write
+    Batch batch();
+
+    interface Batch {
+        Batch put(String key, String value);
+
+        Batch delete(String key);
+
+        // Drop every entry of the store. Applied before the puts and deletes
+        // of the same batch, like SharedPreferences.Editor.clear().
+        Batch clear();
+
+        // Write the changes, may finish in the background
+        void apply();
+
+        // Write the changes and wait until they are stored, false on failure
+        boolean commit();
+    }
+}
@@ -0,0 +1,106 @@
+package com.esb.quicklist.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Store that keeps every entry in a map. Subclasses decide how the map is persisted.
+abstract class MapBackedStore implements KeyValueStore {
+    protected final Map<String, String> entries = new HashMap<>();
+
+    // Called with the lock held after every change, false if the change could not be stored
+    protected abstract boolean persist();
+
+    // Called by commit() without the lock, after persist(). Backends that write
+    // in the background wait here until the change is on disk.
+    protected boolean awaitPersisted() {
+        return true;
+    }
+
+    @Override
+    public synchronized String get(String key, String defaultValue) {
+        String value = entries.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public synchronized Map<String, String> scan(String prefix) {
+        Map<String, String> result = new HashMap<>();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void put(String key, String value) {
+        batch().put(key, value).apply();
+    }
+
+    @Override
+    public void delete(String key) {
+        batch().delete(key).apply();
+    }
+
+    @Override
+    public Batch batch() {
+        return new MapBatch();
+    }
+
+    private class MapBatch implements Batch {
+        private final List<String[]> changes = new ArrayList<>();
+        private boolean clear;
+
+        @Override
+        public Batch put(String key, String value) {
+            changes.add(new String[] {key, value});
+            return this;
+        }
+
+        @Override
+        public Batch delete(String key) {
+            changes.add(new String[] {key, null});
+            return this;
+        }
+
+        @Override
+        public Batch clear() {
+            clear = true;
+            return this;
+        }
+
+        @Override
+        public void apply() {
+            applyChanges();
+        }
+
+        @Override
+        public boolean commit() {
+            return applyChanges() && awaitPersisted();
+        }
+
+        private boolean applyChanges() {
+            synchronized (MapBackedStore.this) {
+                if (clear) {
+                    entries.clear();
+                }
+                for (String[] change : changes) {
+                    if (change[1] == null) {
+                        entries.remove(change[0]);
+                    } else {
+                        entries.put(change[0], change[1]);
+                    }
+                }
+                return persist();
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.esb.quicklist.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Backend that keeps everything in memory, for JVM tests and benchmarks
+public class MemoryStore extends MapBackedStore {
+
+    // Stores live as long as the factory, so reopening a name sees earlier writes
+    public static StoreFactory factory() {
+        Map<String, MemoryStore> stores = new HashMap<>();
+        return new StoreFactory() {
+            @Override
+            public KeyValueStore open(String name) {
+                synchronized (stores) {
+                    MemoryStore store = stores.get(name);
+                    if (store == null) {
+                        store = new MemoryStore();
+                        stores.put(name, store);
+                    }
+                    return store;
+                }
+            }
+
+            @Override
+            public void delete(String name) {
+                synchronized (stores) {
+                    stores.remove(name);
+                }
+            }
+        };
+    }
+
+    @Override
+    protected boolean persist() {
+        return true;
+    }
+}
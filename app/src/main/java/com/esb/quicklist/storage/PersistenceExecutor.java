@@ -0,0 +1,128 @@
+package com.esb.quicklist.storage;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Single background thread that performs every deferred write in submission
+// order. A write is submitted under a key; while one for the same key is still
+// waiting, later submissions replace it, so a burst of changes to one document
+// is stored once. Writes read the current in-memory state when they run.
+// A write that fails asks for a retry, which runs again after a pause.
+public final class PersistenceExecutor {
+    private static final long RETRY_DELAY_MS = 1000;
+    private static final String TAG = "PersistenceExecutor";
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "persistence");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Map<String, Runnable> pending = new HashMap<>();
+    // Writes that failed and wait for their retry, guarded by pending
+    private static final Map<String, Runnable> retrying = new LinkedHashMap<>();
+    private static volatile Thread writerThread;
+    private static long submittedCount;
+    private static long coalescedCount;
+
+    private PersistenceExecutor() {}
+
+    // Queue a write, replacing one for the same key that has not run yet
+    public static void submit(String key, Runnable write) {
+        synchronized (pending) {
+            submittedCount++;
+            if (pending.put(key, write) != null) {
+                coalescedCount++;
+                return; // Already queued, the replaced write runs in its place
+            }
+        }
+        EXECUTOR.execute(() -> run(key));
+    }
+
+    // Called by a write that could not store everything, from the persistence
+    // thread. The write is submitted again after RETRY_DELAY_MS.
+    public static void retryLater(String key, Runnable write) {
+        synchronized (pending) {
+            retrying.put(key, write);
+        }
+        EXECUTOR.schedule(() -> {
+            Runnable retry;
+            synchronized (pending) {
+                retry = retrying.remove(key);
+            }
+            if (retry != null) {
+                submit(key, retry);
+            }
+        }, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Start storing everything queued so far without waiting for it, e.g. when
+    // the app goes to the background
+    public static void drain() {
+        submitRetries();
+        EXECUTOR.execute(FileStore::flushAll);
+    }
+
+    // Block until every write submitted so far is done and on disk. Writes
+    // waiting for a retry are tried once more right away. Returns false if
+    // one of them failed again, or on the persistence thread itself, which
+    // cannot wait for its own queue. Used before data is cleared and by tests.
+    public static boolean flush() {
+        if (Thread.currentThread() == writerThread) {
+            return false;
+        }
+        submitRetries();
+        Future<?> barrier = EXECUTOR.submit(() -> {});
+        try {
+            barrier.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Error flushing writes: " + e.getMessage());
+        }
+        FileStore.flushAll();
+        synchronized (pending) {
+            return retrying.isEmpty();
+        }
+    }
+
+    public static String getStats() {
+        synchronized (pending) {
+            return "submitted=" + submittedCount + " coalesced=" + coalescedCount + " pending=" + pending.size();
+        }
+    }
+
+    private static void submitRetries() {
+        List<Map.Entry<String, Runnable>> retries;
+        synchronized (pending) {
+            retries = new ArrayList<>(retrying.entrySet());
+            retrying.clear();
+        }
+        for (Map.Entry<String, Runnable> retry : retries) {
+            submit(retry.getKey(), retry.getValue());
+        }
+    }
+
+    private static void run(String key) {
+        writerThread = Thread.currentThread();
+        Runnable write;
+        synchronized (pending) {
+            write = pending.remove(key);
+        }
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error writing " + key + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.esb.quicklist.storage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Default backend, one SharedPreferences file per store
+public class SharedPreferencesStore implements KeyValueStore {
+    private final SharedPreferences sharedPreferences;
+
+    public SharedPreferencesStore(SharedPreferences sharedPreferences) {
+        this.sharedPreferences = sharedPreferences;
+    }
+
+    public static StoreFactory factory(Context context) {
+        Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        return new StoreFactory() {
+            @Override
+            public KeyValueStore open(String name) {
+                return new SharedPreferencesStore(appContext.getSharedPreferences(name, Context.MODE_PRIVATE));
+            }
+
+            @Override
+            public void delete(String name) {
+                SharedPreferences sharedPreferences = appContext.getSharedPreferences(name, Context.MODE_PRIVATE);
+                if (!sharedPreferences.getAll().isEmpty()) {
+                    sharedPreferences.edit().clear().commit();
+                }
+                appContext.deleteSharedPreferences(name);
+            }
+        };
+    }
+
+    // Android hands out one SharedPreferences object per file, so two stores
+    // opened on the same name compare equal
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SharedPreferencesStore
+                && ((SharedPreferencesStore) other).sharedPreferences == sharedPreferences;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(sharedPreferences);
+    }
+
+    @Override
+    public String get(String key, String defaultValue) {
+        try {
+            return sharedPreferences.getString(key, defaultValue);
+        } catch (ClassCastException e) {
+            // Written as another type by an older version, e.g. an int
+            return String.valueOf(sharedPreferences.getAll().get(key));
+        }
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return sharedPreferences.contains(key);
+    }
+
+    @Override
+    public Map<String, String> scan(String prefix) {
+        Map<String, String> entries = new HashMap<>();
+        for (Map.Entry<String, ?> entry : sharedPreferences.getAll().entrySet()) {
+            if (entry.getKey().startsWith(prefix) && entry.getValue() != null) {
+                entries.put(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public void put(String key, String value) {
+        sharedPreferences.edit().putString(key, value).apply();
+    }
+
+    @Override
+    public void delete(String key) {
+        sharedPreferences.edit().remove(key).apply();
+    }
+
+    @Override
+    public Batch batch() {
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        return new Batch() {
+            @Override
+            public Batch put(String key, String value) {
+                editor.putString(key, value);
+                return this;
+            }
+
+            @Override
+            public Batch delete(String key) {
+                editor.remove(key);
+                return this;
+            }
+
+            @Override
+            public Batch clear() {
+                editor.clear();
+                return this;
+            }
+
+            @Override
+            public void apply() {
+                editor.apply();
+            }
+
+            @Override
+            public boolean commit() {
+                return editor.commit();
+            }
+        };
+    }
+}
@@ -0,0 +1,11 @@
+package com.esb.quicklist.storage;
+
+// Opens named stores of one backend. Opening the same name twice must return
+// stores that see each other's writes.
+public interface StoreFactory {
+
+    KeyValueStore open(String name);
+
+    // Remove a store and everything in it
+    void delete(String name);
+}
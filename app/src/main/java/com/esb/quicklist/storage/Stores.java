@@ -0,0 +1,45 @@
+package com.esb.quicklist.storage;
+
+import android.content.Context;
+
+import java.io.File;
+
+// Entry point for opening stores. Uses group-committed FileStores under
+// files/stores unless another backend was installed, e.g. a MemoryStore
+// factory in JVM tests and benchmarks. Data still in SharedPreferences from
+// older versions moves into the file store the first time it is opened.
+public final class Stores {
+    private static final String STORE_DIR = "stores";
+
+    private static volatile StoreFactory factory;
+    private static StoreFactory defaultFactory;
+
+    private Stores() {}
+
+    // Install a backend for the whole process, null goes back to the default
+    public static void setFactory(StoreFactory storeFactory) {
+        factory = storeFactory;
+    }
+
+    public static KeyValueStore open(Context context, String name) {
+        return getFactory(context).open(name);
+    }
+
+    public static void delete(Context context, String name) {
+        getFactory(context).delete(name);
+    }
+
+    private static StoreFactory getFactory(Context context) {
+        StoreFactory installed = factory;
+        return installed != null ? installed : getDefaultFactory(context);
+    }
+
+    private static synchronized StoreFactory getDefaultFactory(Context context) {
+        if (defaultFactory == null) {
+            Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+            defaultFactory = FileStore.factory(new File(appContext.getFilesDir(), STORE_DIR),
+                    SharedPreferencesStore.factory(appContext));
+        }
+        return defaultFactory;
+    }
+}
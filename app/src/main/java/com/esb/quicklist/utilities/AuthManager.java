@@ -1,13 +1,15 @@
 package com.esb.quicklist.utilities;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.util.Log;
 
 import com.esb.quicklist.models.Category;
 import com.esb.quicklist.models.Product;
 import com.esb.quicklist.models.ShoppingList;
 import com.esb.quicklist.models.User;
+import com.esb.quicklist.storage.KeyValueStore;
+import com.esb.quicklist.storage.PersistenceExecutor;
+import com.esb.quicklist.storage.Stores;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -16,20 +18,23 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.UUID;
 
 public class AuthManager {
     private static final String PREF_NAME = "UserPrefs";
-    private static final String KEY_USERS = "registered_users";
     private static final String KEY_CURRENT_USER = "current_user";
-    private static final String KEY_SHOPPING_LISTS = "shopping_lists";
     private static final String KEY_PRODUCTS = "products"; // ADDED
     private static final String TAG = "AuthManager";
 
-    private final SharedPreferences sharedPreferences;
+    private final Context context;
+    // Opened by the first call that needs them, see store()
+    private KeyValueStore store;
+    private UserDirectory userDirectory;
+    private ShoppingListRegistry listRegistry;
 
+    // Reads nothing, so a screen can create it in onCreate and leave the
+    // store loads to its background load
     public AuthManager(Context context) {
-        sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.context = context;
     }
 
     // ==================== PRODUCT MANAGEMENT METHODS ====================
@@ -37,7 +42,7 @@ public class AuthManager {
     // Save product (shared across all users of the same list)
     public boolean saveProduct(Product product) {
         try {
-            String productsJson = sharedPreferences.getString(KEY_PRODUCTS, "{}");
+            String productsJson = store().get(KEY_PRODUCTS, "{}");
             JSONObject allProducts = new JSONObject(productsJson);
 
             // Get or create array for this list
@@ -50,7 +55,7 @@ public class AuthManager {
 
             // Convert product to JSON
             JSONObject productJson = new JSONObject();
-            productJson.put("id", product.getId());
+            productJson.put("id", String.valueOf(product.getId()));
             productJson.put("name", product.getName());
             productJson.put("category", product.getCategory());
             productJson.put("quantity", product.getQuantity());
@@ -64,7 +69,7 @@ public class AuthManager {
             listProducts.put(productJson);
             allProducts.put(product.getListCode(), listProducts);
 
-            sharedPreferences.edit().putString(KEY_PRODUCTS, allProducts.toString()).apply();
+            store().put(KEY_PRODUCTS, allProducts.toString());
             Log.d(TAG, "Product saved: " + product.getName() + " to list: " + product.getListCode());
             return true;
         } catch (JSONException e) {
@@ -77,7 +82,7 @@ public class AuthManager {
     public List<Product> getProductsForList(String listCode) {
         List<Product> products = new ArrayList<>();
         try {
-            String productsJson = sharedPreferences.getString(KEY_PRODUCTS, "{}");
+            String productsJson = store().get(KEY_PRODUCTS, "{}");
             JSONObject allProducts = new JSONObject(productsJson);
 
             if (allProducts.has(listCode)) {
@@ -95,7 +100,7 @@ public class AuthManager {
                             productJson.optDouble("price", 0.0)
                     );
 
-                    product.setId(productJson.getString("id"));
+                    product.setId(ProductLog.readId(productJson));
                     product.setPurchased(productJson.optBoolean("purchased", false));
                     product.setAddedDate(productJson.optLong("addedDate", System.currentTimeMillis()));
 
@@ -112,7 +117,7 @@ public class AuthManager {
     // Update product
     public boolean updateProduct(Product updatedProduct) {
         try {
-            String productsJson = sharedPreferences.getString(KEY_PRODUCTS, "{}");
+            String productsJson = store().get(KEY_PRODUCTS, "{}");
             JSONObject allProducts = new JSONObject(productsJson);
 
             if (!allProducts.has(updatedProduct.getListCode())) {
@@ -124,7 +129,7 @@ public class AuthManager {
             // Find and update the product
             for (int i = 0; i < listProducts.length(); i++) {
                 JSONObject productJson = listProducts.getJSONObject(i);
-                if (productJson.getString("id").equals(updatedProduct.getId())) {
+                if (productJson.getString("id").equals(String.valueOf(updatedProduct.getId()))) {
                     // Update fields
                     productJson.put("name", updatedProduct.getName());
                     productJson.put("category", updatedProduct.getCategory());
@@ -134,7 +139,7 @@ public class AuthManager {
                     productJson.put("price", updatedProduct.getPrice());
 
                     allProducts.put(updatedProduct.getListCode(), listProducts);
-                    sharedPreferences.edit().putString(KEY_PRODUCTS, allProducts.toString()).apply();
+                    store().put(KEY_PRODUCTS, allProducts.toString());
                     Log.d(TAG, "Product updated: " + updatedProduct.getName());
                     return true;
                 }
@@ -148,7 +153,7 @@ public class AuthManager {
     // Delete product
     public boolean deleteProduct(String productId, String listCode) {
         try {
-            String productsJson = sharedPreferences.getString(KEY_PRODUCTS, "{}");
+            String productsJson = store().get(KEY_PRODUCTS, "{}");
             JSONObject allProducts = new JSONObject(productsJson);
 
             if (!allProducts.has(listCode)) {
@@ -167,7 +172,7 @@ public class AuthManager {
             }
 
             allProducts.put(listCode, newProducts);
-            sharedPreferences.edit().putString(KEY_PRODUCTS, allProducts.toString()).apply();
+            store().put(KEY_PRODUCTS, allProducts.toString());
             Log.d(TAG, "Product deleted: " + productId + " from list: " + listCode);
             return true;
         } catch (JSONException e) {
@@ -221,15 +226,12 @@ public class AuthManager {
     public boolean registerUser(String email, String password, User.UserRole role) {
         Log.d(TAG, "Attempting to register: " + email + " as " + role);
 
-        if (userExists(email)) {
+        // add() refuses existing emails, no separate userExists() lookup needed
+        if (!userDirectory().add(new User(email, password, role))) {
             Log.d(TAG, "User already exists: " + email);
             return false;
         }
 
-        List<User> users = getRegisteredUsers();
-        users.add(new User(email, password, role));
-        saveUsers(users);
-
         Log.d(TAG, "Registration successful for: " + email + " as " + role);
         return true;
     }
@@ -237,14 +239,11 @@ public class AuthManager {
     public boolean loginUser(String email, String password) {
         Log.d(TAG, "Attempting login for: " + email);
 
-        List<User> users = getRegisteredUsers();
-
-        for (User user : users) {
-            if (user.getEmail().equals(email) && user.getPassword().equals(password)) {
-                sharedPreferences.edit().putString(KEY_CURRENT_USER, email).apply();
-                Log.d(TAG, "Login successful for: " + email);
-                return true;
-            }
+        User user = userDirectory().get(email);
+        if (user != null && user.getPassword().equals(password)) {
+            store().put(KEY_CURRENT_USER, email);
+            Log.d(TAG, "Login successful for: " + email);
+            return true;
         }
 
         Log.d(TAG, "Login failed for: " + email);
@@ -372,61 +371,20 @@ public class AuthManager {
     }
 
     private String generateListCode() {
-        String code;
-        do {
-            code = UUID.randomUUID().toString().substring(0, 6).toUpperCase();
-        } while (getShoppingList(code) != null);
-        return code;
+        return listRegistry().allocateListCode();
     }
 
     public ShoppingList getShoppingList(String listCode) {
-        String shoppingListsJson = sharedPreferences.getString(KEY_SHOPPING_LISTS, "{}");
-        try {
-            JSONObject jsonObject = new JSONObject(shoppingListsJson);
-            if (jsonObject.has(listCode)) {
-                JSONObject listJson = jsonObject.getJSONObject(listCode);
-
-                String listName = listJson.getString("listName");
-                String creatorEmail = listJson.getString("creatorEmail");
-                String category = listJson.optString("category", "General");
-
-                ShoppingList shoppingList = new ShoppingList(listCode, listName, creatorEmail, category);
-
-                JSONArray membersArray = listJson.getJSONArray("members");
-                for (int i = 0; i < membersArray.length(); i++) {
-                    shoppingList.addMember(membersArray.getString(i));
-                }
+        return listRegistry().get(listCode);
+    }
 
-                return shoppingList;
-            }
-        } catch (JSONException e) {
-            Log.e(TAG, "Error getting shopping list: " + e.getMessage());
-        }
-        return null;
+    // Every stored list, regardless of membership
+    public List<ShoppingList> getAllShoppingLists() {
+        return listRegistry().getAll();
     }
 
     private void saveShoppingList(ShoppingList shoppingList) {
-        String shoppingListsJson = sharedPreferences.getString(KEY_SHOPPING_LISTS, "{}");
-        try {
-            JSONObject jsonObject = new JSONObject(shoppingListsJson);
-
-            JSONObject listJson = new JSONObject();
-            listJson.put("listName", shoppingList.getListName());
-            listJson.put("creatorEmail", shoppingList.getCreatorEmail());
-            listJson.put("category", shoppingList.getCategory());
-
-            JSONArray membersArray = new JSONArray();
-            for (String member : shoppingList.getMemberEmails()) {
-                membersArray.put(member);
-            }
-            listJson.put("members", membersArray);
-
-            jsonObject.put(shoppingList.getListCode(), listJson);
-
-            sharedPreferences.edit().putString(KEY_SHOPPING_LISTS, jsonObject.toString()).apply();
-        } catch (JSONException e) {
-            Log.e(TAG, "Error saving shopping list: " + e.getMessage());
-        }
+        listRegistry().put(shoppingList);
     }
 
     public List<ShoppingList> getUserShoppingLists() {
@@ -436,31 +394,13 @@ public class AuthManager {
             return userLists;
         }
 
-        String shoppingListsJson = sharedPreferences.getString(KEY_SHOPPING_LISTS, "{}");
-        try {
-            JSONObject jsonObject = new JSONObject(shoppingListsJson);
-
-            for (String listCode : getUserJoinedLists()) {
-                if (jsonObject.has(listCode)) {
-                    JSONObject listJson = jsonObject.getJSONObject(listCode);
-
-                    String listName = listJson.getString("listName");
-                    String creatorEmail = listJson.getString("creatorEmail");
-                    String category = listJson.optString("category", "General");
-
-                    ShoppingList shoppingList = new ShoppingList(listCode, listName, creatorEmail, category);
-
-                    JSONArray membersArray = listJson.getJSONArray("members");
-                    for (int i = 0; i < membersArray.length(); i++) {
-                        shoppingList.addMember(membersArray.getString(i));
-                    }
-
-                    userLists.add(shoppingList);
-                }
+        for (String listCode : getUserJoinedLists()) {
+            ShoppingList list = listRegistry().get(listCode);
+            if (list != null) {
+                userLists.add(list);
             }
-        } catch (JSONException e) {
-            Log.e(TAG, "Error getting user shopping lists: " + e.getMessage());
         }
+        Log.d(TAG, "LIST REGISTRY: " + listRegistry().getStats());
 
         return userLists;
     }
@@ -472,13 +412,10 @@ public class AuthManager {
             return createdLists;
         }
 
-        String[] listCodes = user.getCreatedLists().split(",");
-        for (String listCode : listCodes) {
-            if (!listCode.trim().isEmpty()) {
-                ShoppingList list = getShoppingList(listCode.trim());
-                if (list != null) {
-                    createdLists.add(list);
-                }
+        for (String listCode : user.getCreatedLists()) {
+            ShoppingList list = getShoppingList(listCode);
+            if (list != null) {
+                createdLists.add(list);
             }
         }
 
@@ -487,27 +424,41 @@ public class AuthManager {
     // Add this method to your AuthManager.java class
     // In AuthManager.java - make sure you have this method
     public boolean updateShoppingList(String listCode, String newListName) {
-        try {
-            String shoppingListsJson = sharedPreferences.getString(KEY_SHOPPING_LISTS, "{}");
-            JSONObject allLists = new JSONObject(shoppingListsJson);
-
-            if (!allLists.has(listCode)) {
-                return false;
-            }
-
-            JSONObject listJson = allLists.getJSONObject(listCode);
-            listJson.put("listName", newListName);
+        ShoppingList list = listRegistry().get(listCode);
+        if (list == null) {
+            return false;
+        }
 
-            allLists.put(listCode, listJson);
-            sharedPreferences.edit().putString(KEY_SHOPPING_LISTS, allLists.toString()).apply();
+        list.setListName(newListName);
+        if (!listRegistry().put(list)) {
+            return false;
+        }
 
-            Log.d(TAG, "List updated: " + listCode + " -> " + newListName);
-            return true;
+        Log.d(TAG, "List updated: " + listCode + " -> " + newListName);
+        return true;
+    }
 
-        } catch (JSONException e) {
-            Log.e(TAG, "Error updating shopping list: " + e.getMessage());
+    // Remove a list and drop it from every user's created and joined lists.
+    // Waits for the write, false if the list is unknown or was not stored.
+    public boolean deleteShoppingList(String listCode) {
+        // List and changed users in one write so a list never outlives its membership entries
+        KeyValueStore.Batch batch = store().batch();
+        if (!listRegistry().remove(listCode, batch)) {
+            Log.e(TAG, "Cannot delete unknown list: " + listCode);
             return false;
         }
+        for (User user : userDirectory().getUsersForList(listCode)) {
+            user.removeCreatedList(listCode);
+            user.removeJoinedList(listCode);
+            userDirectory().update(user, batch);
+        }
+        if (!batch.commit()) {
+            Log.e(TAG, "Failed to store deletion of list: " + listCode);
+            return false;
+        }
+
+        Log.d(TAG, "List deleted: " + listCode);
+        return true;
     }
 
     public List<String> getUserJoinedLists() {
@@ -516,46 +467,22 @@ public class AuthManager {
             return new ArrayList<>();
         }
 
-        List<String> lists = new ArrayList<>();
-        String[] codes = user.getJoinedLists().split(",");
-        for (String code : codes) {
-            lists.add(code.trim());
-        }
-        return lists;
+        return new ArrayList<>(user.getJoinedLists());
     }
 
     private User getUserByEmail(String email) {
-        List<User> users = getRegisteredUsers();
-        for (User user : users) {
-            if (user.getEmail().equals(email)) {
-                return user;
-            }
-        }
-        return null;
+        return userDirectory().get(email);
     }
 
+    // Only rewrites this user's record, and only if the user is registered
     private void updateUser(User updatedUser) {
-        List<User> users = getRegisteredUsers();
-        for (int i = 0; i < users.size(); i++) {
-            if (users.get(i).getEmail().equals(updatedUser.getEmail())) {
-                users.set(i, updatedUser);
-                saveUsers(users);
-                return;
-            }
+        if (userDirectory().contains(updatedUser.getEmail())) {
+            userDirectory().update(updatedUser);
         }
     }
 
     public User getCurrentUserObject() {
-        String email = getCurrentUser();
-        if (email == null) return null;
-
-        List<User> users = getRegisteredUsers();
-        for (User user : users) {
-            if (user.getEmail().equals(email)) {
-                return user;
-            }
-        }
-        return null;
+        return userDirectory().get(getCurrentUser());
     }
 
     public boolean isCurrentUserAdmin() {
@@ -579,79 +506,17 @@ public class AuthManager {
         return new ArrayList<>();
     }
 
-    private List<User> getRegisteredUsers() {
-        String usersJson = sharedPreferences.getString(KEY_USERS, "[]");
-        List<User> users = new ArrayList<>();
-
-        try {
-            JSONArray jsonArray = new JSONArray(usersJson);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject jsonObject = jsonArray.getJSONObject(i);
-                String email = jsonObject.getString("email");
-                String password = jsonObject.getString("password");
-                User.UserRole role = User.UserRole.valueOf(jsonObject.optString("role", "USER"));
-                String createdLists = jsonObject.optString("createdLists", "");
-                String joinedLists = jsonObject.optString("joinedLists", "");
-
-                User user = new User(email, password, role);
-
-                if (!createdLists.isEmpty()) {
-                    String[] lists = createdLists.split(",");
-                    for (String listCode : lists) {
-                        if (!listCode.trim().isEmpty()) {
-                            user.addCreatedList(listCode.trim());
-                        }
-                    }
-                }
-
-                if (!joinedLists.isEmpty()) {
-                    String[] lists = joinedLists.split(",");
-                    for (String listCode : lists) {
-                        if (!listCode.trim().isEmpty()) {
-                            user.addJoinedList(listCode.trim());
-                        }
-                    }
-                }
-
-                users.add(user);
-            }
-        } catch (JSONException e) {
-            Log.e(TAG, "Error parsing users JSON: " + e.getMessage());
-        }
-
-        return users;
-    }
-
-    private void saveUsers(List<User> users) {
-        JSONArray jsonArray = new JSONArray();
-
-        try {
-            for (User user : users) {
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("email", user.getEmail());
-                jsonObject.put("password", user.getPassword());
-                jsonObject.put("role", user.getRole().name());
-                if (!user.getCreatedLists().isEmpty()) {
-                    jsonObject.put("createdLists", user.getCreatedLists());
-                }
-                if (!user.getJoinedLists().isEmpty()) {
-                    jsonObject.put("joinedLists", user.getJoinedLists());
-                }
-                jsonArray.put(jsonObject);
-            }
-        } catch (JSONException e) {
-            Log.e(TAG, "Error creating users JSON: " + e.getMessage());
-        }
-
-        sharedPreferences.edit().putString(KEY_USERS, jsonArray.toString()).apply();
+    // Every registered account
+    public List<User> getAllUsers() {
+        return userDirectory().getAll();
     }
 
     public String getCurrentUser() {
-        return sharedPreferences.getString(KEY_CURRENT_USER, null);
+        return store().get(KEY_CURRENT_USER, null);
     }
 
     public void logout() {
-        sharedPreferences.edit().remove(KEY_CURRENT_USER).apply();
+        store().delete(KEY_CURRENT_USER);
     }
 
     public boolean isLoggedIn() {
@@ -659,17 +524,38 @@ public class AuthManager {
     }
 
     public boolean userExists(String email) {
-        List<User> users = getRegisteredUsers();
-        for (User user : users) {
-            if (user.getEmail().equals(email)) {
-                return true;
-            }
-        }
-        return false;
+        return userDirectory().contains(email);
     }
 
     public void clearAllData() {
-        sharedPreferences.edit().clear().apply();
+        // No queued write may land after the clear
+        if (!PersistenceExecutor.flush()) {
+            Log.e(TAG, "Some queued writes could not be stored before the clear");
+        }
+        store().batch().clear().apply();
+        userDirectory().clear();
+        listRegistry().clear();
         Log.d(TAG, "Cleared all data");
     }
-}
\ No newline at end of file
+
+    private synchronized KeyValueStore store() {
+        if (store == null) {
+            store = Stores.open(context, PREF_NAME);
+        }
+        return store;
+    }
+
+    private synchronized UserDirectory userDirectory() {
+        if (userDirectory == null) {
+            userDirectory = UserDirectory.forStore(store());
+        }
+        return userDirectory;
+    }
+
+    private synchronized ShoppingListRegistry listRegistry() {
+        if (listRegistry == null) {
+            listRegistry = ShoppingListRegistry.forStore(store());
+        }
+        return listRegistry;
+    }
+}
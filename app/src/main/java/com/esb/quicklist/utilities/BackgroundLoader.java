@@ -0,0 +1,89 @@
+package com.esb.quicklist.utilities;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs a screen's storage reads on a background thread and hands the result
+// to the main thread. Only the latest load of a screen is delivered: starting
+// a new one or calling cancel() drops the result of any load still running.
+// A load that throws is logged and ends like any other; the screen hears of
+// it through the failure callback if it passed one. Create, load and cancel
+// from the main thread.
+public class BackgroundLoader {
+
+    public interface Task<T> {
+        T load();
+    }
+
+    public interface Callback<T> {
+        void onLoaded(T result);
+    }
+
+    public interface FailureCallback {
+        void onFailed(Throwable error);
+    }
+
+    private static final String TAG = "BackgroundLoader";
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private int generation;
+    private Future<?> current;
+
+    public <T> void load(Task<T> task, Callback<T> callback) {
+        load(task, callback, null);
+    }
+
+    public <T> void load(Task<T> task, Callback<T> callback, FailureCallback failureCallback) {
+        cancel();
+        int loadGeneration = generation;
+        current = EXECUTOR.submit(() -> {
+            T result;
+            try {
+                result = task.load();
+            } catch (RuntimeException | Error e) {
+                Log.e(TAG, "Load failed", e);
+                mainHandler.post(() -> {
+                    if (loadGeneration == generation) {
+                        current = null;
+                        if (failureCallback != null) {
+                            failureCallback.onFailed(e);
+                        }
+                    }
+                });
+                return;
+            }
+            mainHandler.post(() -> {
+                if (loadGeneration == generation) {
+                    current = null;
+                    callback.onLoaded(result);
+                }
+            });
+        });
+    }
+
+    // True until the result of the latest load is delivered
+    public boolean isLoading() {
+        return current != null;
+    }
+
+    // Drop the running load, e.g. when the screen goes away. A load that has
+    // not started yet is not run at all.
+    public void cancel() {
+        generation++;
+        if (current != null) {
+            current.cancel(false);
+            current = null;
+        }
+    }
+}
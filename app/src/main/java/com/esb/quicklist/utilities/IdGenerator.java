@@ -0,0 +1,99 @@
+package com.esb.quicklist.utilities;
+
+import android.content.Context;
+
+import android.util.Log;
+
+import com.esb.quicklist.storage.KeyValueStore;
+import com.esb.quicklist.storage.Stores;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Unique, increasing 63-bit ids without locking:
+//   41 bits milliseconds since 2024-01-01 | 12 bits sequence | 10 bits node id
+// Ids made in the same millisecond take the next sequence number. If the
+// sequence runs out, or the clock goes back, the id borrows from the next
+// millisecond instead of repeating. The node id tells devices apart.
+//
+// So that a clock set back across a restart cannot repeat ids, a high-water
+// mark LEASE_MS ahead of the last id is stored before an id passes the stored
+// one, and init() starts after it. That is one write per LEASE_MS of ids.
+public final class IdGenerator {
+    private static final String PREF_NAME = "IdGenerator";
+    private static final String KEY_NODE_ID = "node_id";
+    private static final String KEY_HIGH_WATER = "high_water";
+    private static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 10;
+    private static final long LEASE_MS = 10_000;
+    private static final String TAG = "IdGenerator";
+
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last id handed out
+    private static final AtomicLong lastTick = new AtomicLong();
+    // Random until init() loads the device's stored node id
+    private static volatile long nodeId = new SecureRandom().nextInt(1 << NODE_BITS);
+    // Set by init(), ids are not leased before that
+    private static volatile KeyValueStore store;
+    // Stored tick no id has passed yet, written under the class lock
+    private static volatile long highWater;
+
+    private IdGenerator() {}
+
+    // Use the node id stored for this device, picking one on first run, and
+    // continue after the stored high-water mark
+    public static synchronized void init(Context context) {
+        KeyValueStore opened = Stores.open(context, PREF_NAME);
+        loadNodeId(opened);
+        long storedMark = 0;
+        try {
+            storedMark = Long.parseLong(opened.get(KEY_HIGH_WATER, "0"));
+        } catch (NumberFormatException e) {
+            Log.e(TAG, "Ignoring unreadable high-water mark");
+        }
+        lastTick.accumulateAndGet(storedMark, Math::max);
+        // The next id passes it and leases a new mark in this store
+        highWater = storedMark;
+        store = opened;
+    }
+
+    public static long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        while (true) {
+            long last = lastTick.get();
+            long next = Math.max(now, last + 1);
+            if (lastTick.compareAndSet(last, next)) {
+                if (store != null && next > highWater) {
+                    lease(next);
+                }
+                return (next << NODE_BITS) | nodeId;
+            }
+        }
+    }
+
+    private static void loadNodeId(KeyValueStore opened) {
+        String storedNodeId = opened.get(KEY_NODE_ID, null);
+        if (storedNodeId != null) {
+            try {
+                nodeId = Long.parseLong(storedNodeId) & ((1 << NODE_BITS) - 1);
+                return;
+            } catch (NumberFormatException e) {
+                // Fall through and store a fresh one
+            }
+        }
+        opened.put(KEY_NODE_ID, String.valueOf(nodeId));
+    }
+
+    // Store a mark past the tick before its id is handed out
+    private static synchronized void lease(long tick) {
+        if (tick <= highWater) {
+            return; // Another thread leased past it meanwhile
+        }
+        long mark = tick + (LEASE_MS << SEQUENCE_BITS);
+        if (!store.batch().put(KEY_HIGH_WATER, String.valueOf(mark)).commit()) {
+            Log.e(TAG, "Could not store the high-water mark");
+        }
+        // Also on failure, or every later id would retry the write
+        highWater = mark;
+    }
+}
@@ -0,0 +1,62 @@
+package com.esb.quicklist.utilities;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Hands out 6 character list codes that are unique among the codes it was
+// seeded with (stored and deleted lists) and those handed out since. Codes are
+// drawn from a 32 letter alphabet without look-alikes (0/O, 1/I), which gives
+// 2^30 codes instead of the 2^24 of the old hex codes.
+public class ListCodeAllocator {
+    private static final char[] ALPHABET = "23456789ABCDEFGHJKLMNPQRSTUVWXYZ".toCharArray();
+    private static final int CODE_LENGTH = 6;
+    private static final int BITS_PER_CHAR = 5;
+    private static final long CODE_SPACE = 1L << (CODE_LENGTH * BITS_PER_CHAR);
+
+    // Every code that was seeded or handed out in this process
+    private final Set<String> issuedCodes;
+
+    // Start with the codes already in use, as read from storage
+    public ListCodeAllocator(Collection<String> usedCodes) {
+        issuedCodes = new HashSet<>(usedCodes);
+    }
+
+    // Reserve a code that is already in use, e.g. one loaded from storage
+    public synchronized void markIssued(String listCode) {
+        issuedCodes.add(listCode);
+    }
+
+    public synchronized boolean isIssued(String listCode) {
+        return issuedCodes.contains(listCode);
+    }
+
+    // Expected number of attempts is 1 / (1 - fill ratio), so this stays
+    // constant-time while the code space is far from full
+    public synchronized String allocate() {
+        if (issuedCodes.size() >= CODE_SPACE) {
+            throw new IllegalStateException("List code space exhausted");
+        }
+
+        String code;
+        do {
+            code = encode(ThreadLocalRandom.current().nextInt(1 << (CODE_LENGTH * BITS_PER_CHAR)));
+        } while (!issuedCodes.add(code));
+        return code;
+    }
+
+    // Share of the code space already taken, between 0 and 1
+    public synchronized double getFillRatio() {
+        return (double) issuedCodes.size() / CODE_SPACE;
+    }
+
+    private static String encode(int value) {
+        char[] code = new char[CODE_LENGTH];
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            code[i] = ALPHABET[value & (ALPHABET.length - 1)];
+            value >>>= BITS_PER_CHAR;
+        }
+        return new String(code);
+    }
+}
@@ -0,0 +1,101 @@
+package com.esb.quicklist.utilities;
+
+import com.esb.quicklist.models.Product;
+import com.esb.quicklist.models.ShoppingList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Immutable view of one shopping list as its screens show it: name, members,
+// products and statistics, read together off the main thread. The products
+// are copies the screen owns.
+public final class ListSnapshot {
+    private final String listCode;
+    private final String listName;
+    private final String creatorEmail;
+    private final List<String> members;
+    private final List<Product> products;
+    private final String statistics;
+    private final boolean readError;
+    private final boolean currentUserCreator;
+    private final boolean currentUserAdmin;
+
+    private ListSnapshot(String listCode, String listName, String creatorEmail, List<String> members,
+                         List<Product> products, String statistics, boolean readError,
+                         boolean currentUserCreator, boolean currentUserAdmin) {
+        this.listCode = listCode;
+        this.listName = listName;
+        this.creatorEmail = creatorEmail;
+        this.members = members;
+        this.products = Collections.unmodifiableList(products);
+        this.statistics = statistics;
+        this.readError = readError;
+        this.currentUserCreator = currentUserCreator;
+        this.currentUserAdmin = currentUserAdmin;
+    }
+
+    // Reads storage, call it from a background thread
+    public static ListSnapshot load(AuthManager authManager, ProductManager productManager, String listCode) {
+        ShoppingList shoppingList = authManager.getShoppingList(listCode);
+        List<String> members = shoppingList != null ? authManager.getListMembers(listCode) : Collections.emptyList();
+        return new ListSnapshot(listCode,
+                shoppingList != null ? shoppingList.getListName() : null,
+                shoppingList != null ? shoppingList.getCreatorEmail() : null,
+                Collections.unmodifiableList(new ArrayList<>(members)),
+                productManager.getProductsForList(listCode),
+                productManager.getListStatistics(listCode),
+                productManager.hasReadError(listCode),
+                authManager.isListCreator(listCode),
+                authManager.isCurrentUserAdmin());
+    }
+
+    // Same list after a product change the screen applied itself
+    public ListSnapshot withProducts(List<Product> products, String statistics) {
+        return new ListSnapshot(listCode, listName, creatorEmail, members, products, statistics,
+                readError, currentUserCreator, currentUserAdmin);
+    }
+
+    public String getListCode() {
+        return listCode;
+    }
+
+    // False if the list was deleted
+    public boolean exists() {
+        return listName != null;
+    }
+
+    public String getListName() {
+        return listName;
+    }
+
+    public boolean isCreator(String email) {
+        return creatorEmail != null && creatorEmail.equals(email);
+    }
+
+    public List<String> getMembers() {
+        return members;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public String getStatistics() {
+        return statistics;
+    }
+
+    // True if the stored products could not be read, the list only looks empty
+    public boolean hasReadError() {
+        return readError;
+    }
+
+    public boolean isCurrentUserCreator() {
+        return currentUserCreator;
+    }
+
+    // Creator or admin, the users that may manage the list
+    public boolean canCurrentUserManage() {
+        return currentUserCreator || currentUserAdmin;
+    }
+}
@@ -0,0 +1,90 @@
+package com.esb.quicklist.utilities;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Process-wide cache of decoded lists, shared by every ProductManager instance.
+// Least recently used lists are evicted once the product budget is exceeded.
+public class ProductCache {
+    private static final int MAX_CACHED_PRODUCTS = 10000;
+
+    private static final ProductCache INSTANCE = new ProductCache();
+
+    // Access-ordered so iteration starts at the least recently used list
+    private final LinkedHashMap<String, ProductShard> lists = new LinkedHashMap<>(16, 0.75f, true);
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    private ProductCache() {}
+
+    public static ProductCache getInstance() {
+        return INSTANCE;
+    }
+
+    // Decoded list, or null on a miss
+    public synchronized ProductShard get(String listCode) {
+        ProductShard shard = lists.get(listCode);
+        if (shard != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return shard;
+    }
+
+    // Same as get() but does not count towards the statistics, used for write-through
+    public synchronized ProductShard peek(String listCode) {
+        return lists.get(listCode);
+    }
+
+    public synchronized void put(String listCode, ProductShard shard) {
+        lists.put(listCode, shard);
+        trim(listCode);
+    }
+
+    // Called after a write-through changed a cached list's size
+    public synchronized void trim(String keepListCode) {
+        int total = 0;
+        for (ProductShard shard : lists.values()) {
+            total += shard.size();
+        }
+
+        Iterator<Map.Entry<String, ProductShard>> iterator = lists.entrySet().iterator();
+        while (total > MAX_CACHED_PRODUCTS && iterator.hasNext()) {
+            Map.Entry<String, ProductShard> entry = iterator.next();
+            if (entry.getKey().equals(keepListCode)) {
+                continue; // Never evict the list that is being used right now
+            }
+            total -= entry.getValue().size();
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    public synchronized void invalidate(String listCode) {
+        lists.remove(listCode);
+    }
+
+    public synchronized void clear() {
+        lists.clear();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized String getStats() {
+        int cachedProducts = 0;
+        for (ProductShard shard : lists.values()) {
+            cachedProducts += shard.size();
+        }
+        return "lists=" + lists.size() + " products=" + cachedProducts + "/" + MAX_CACHED_PRODUCTS +
+                " hits=" + hitCount + " misses=" + missCount + " evictions=" + evictionCount;
+    }
+}
@@ -0,0 +1,45 @@
+package com.esb.quicklist.utilities;
+
+import com.esb.quicklist.models.Product;
+
+// One stored change to a product, returned by the ProductManager write
+// methods so a screen can apply it to the rows it shows instead of reading
+// the whole list again.
+public final class ProductChange {
+
+    public enum Type {
+        INSERT,
+        UPDATE,
+        REMOVE
+    }
+
+    private final Type type;
+    private final Product product;
+    private final String listStatistics;
+
+    ProductChange(Type type, Product product, String listStatistics) {
+        this.type = type;
+        this.product = product;
+        this.listStatistics = listStatistics;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // The product as stored, or as it was before it was removed. A copy the
+    // caller owns.
+    public Product getProduct() {
+        return product;
+    }
+
+    public String getListCode() {
+        return product.getListCode();
+    }
+
+    // Statistics of the product's list right after the change, or null for a
+    // change that is not stored yet
+    public String getListStatistics() {
+        return listStatistics;
+    }
+}
@@ -0,0 +1,218 @@
+package com.esb.quicklist.utilities;
+
+import com.esb.quicklist.models.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compact binary format for the products of one list.
+//
+// Layout (version 2):
+//   magic "QLP", version byte
+//   varint dictionary size, then dictionary strings (category and addedBy values)
+//   varint product count, then per product:
+//     varint id (version 1: string id), string name, flags byte,
+//     varint category index, varint addedBy index, zigzag varint quantity,
+//     zigzag varint addedDate delta from the previous product,
+//     [string notes if FLAG_NOTES], [8 byte price if FLAG_PRICE]
+//   Strings are a varint byte length followed by UTF-8 bytes. The list code is
+//   not stored, the caller already knows it.
+public final class ProductCodec {
+    private static final byte[] MAGIC = {'Q', 'L', 'P'};
+    private static final int VERSION = 2;
+    private static final int VERSION_STRING_IDS = 1;
+
+    private static final int FLAG_PURCHASED = 1;
+    private static final int FLAG_NOTES = 1 << 1;
+    private static final int FLAG_PRICE = 1 << 2;
+
+    private ProductCodec() {}
+
+    // True when the bytes start with this codec's header
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length > MAGIC.length
+                && data[0] == MAGIC[0] && data[1] == MAGIC[1] && data[2] == MAGIC[2];
+    }
+
+    public static byte[] encode(List<Product> products) {
+        // Dictionary of repeated category / addedBy values
+        List<String> dictionary = new ArrayList<>();
+        Map<String, Integer> dictionaryIndex = new HashMap<>();
+        for (Product product : products) {
+            addToDictionary(nonNull(product.getCategory()), dictionary, dictionaryIndex);
+            addToDictionary(nonNull(product.getAddedBy()), dictionary, dictionaryIndex);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + products.size() * 24);
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(VERSION);
+
+        writeVarint(out, dictionary.size());
+        for (String value : dictionary) {
+            writeString(out, value);
+        }
+
+        writeVarint(out, products.size());
+        long previousDate = 0;
+        for (Product product : products) {
+            String notes = nonNull(product.getNotes());
+            int flags = 0;
+            if (product.isPurchased()) flags |= FLAG_PURCHASED;
+            if (!notes.isEmpty()) flags |= FLAG_NOTES;
+            if (product.getPrice() != 0.0) flags |= FLAG_PRICE;
+
+            writeVarint(out, product.getId());
+            writeString(out, nonNull(product.getName()));
+            out.write(flags);
+            writeVarint(out, dictionaryIndex.get(nonNull(product.getCategory())));
+            writeVarint(out, dictionaryIndex.get(nonNull(product.getAddedBy())));
+            writeVarint(out, zigzag(product.getQuantity()));
+            writeVarint(out, zigzag(product.getAddedDate() - previousDate));
+            previousDate = product.getAddedDate();
+
+            if ((flags & FLAG_NOTES) != 0) {
+                writeString(out, notes);
+            }
+            if ((flags & FLAG_PRICE) != 0) {
+                long bits = Double.doubleToLongBits(product.getPrice());
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    out.write((int) (bits >>> shift));
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static List<Product> decode(byte[] data, String listCode) throws IOException {
+        if (!isEncoded(data)) {
+            throw new IOException("Not an encoded product list");
+        }
+        Input in = new Input(data, MAGIC.length);
+        int version = in.readByte();
+        if (version != VERSION && version != VERSION_STRING_IDS) {
+            throw new IOException("Unsupported product list version: " + version);
+        }
+
+        int dictionarySize = (int) in.readVarint();
+        String[] dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            dictionary[i] = in.readString();
+        }
+
+        int count = (int) in.readVarint();
+        List<Product> products = new ArrayList<>(count);
+        long previousDate = 0;
+        for (int i = 0; i < count; i++) {
+            long id = version == VERSION_STRING_IDS ? parseId(in.readString()) : in.readVarint();
+            String name = in.readString();
+            int flags = in.readByte();
+            String category = dictionary[(int) in.readVarint()];
+            String addedBy = dictionary[(int) in.readVarint()];
+            int quantity = (int) unzigzag(in.readVarint());
+            long addedDate = previousDate + unzigzag(in.readVarint());
+            previousDate = addedDate;
+
+            String notes = (flags & FLAG_NOTES) != 0 ? in.readString() : "";
+            double price = 0.0;
+            if ((flags & FLAG_PRICE) != 0) {
+                long bits = 0;
+                for (int b = 0; b < 8; b++) {
+                    bits = (bits << 8) | in.readByte();
+                }
+                price = Double.longBitsToDouble(bits);
+            }
+
+            Product product = new Product(name, category, quantity, addedBy, listCode, notes, price);
+            product.setId(id);
+            product.setPurchased((flags & FLAG_PURCHASED) != 0);
+            product.setAddedDate(addedDate);
+            products.add(product);
+        }
+        return products;
+    }
+
+    private static long parseId(String id) throws IOException {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid product id: " + id);
+        }
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static void addToDictionary(String value, List<String> dictionary, Map<String, Integer> index) {
+        if (!index.containsKey(value)) {
+            index.put(value, dictionary.size());
+            dictionary.add(value);
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Input {
+        private final byte[] data;
+        private int position;
+
+        Input(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        int readByte() throws IOException {
+            if (position >= data.length) {
+                throw new IOException("Truncated product list");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        long readVarint() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        String readString() throws IOException {
+            int length = (int) readVarint();
+            if (length < 0 || position + length > data.length) {
+                throw new IOException("Truncated product list");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
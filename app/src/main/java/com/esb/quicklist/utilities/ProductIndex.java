@@ -0,0 +1,249 @@
+package com.esb.quicklist.utilities;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.esb.quicklist.storage.PersistenceExecutor;
+import com.esb.quicklist.storage.Stores;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Persistent product id -> list code index. Held in memory and stored as an
+// append-only log next to the list logs, so a change writes one line however
+// many products there are. The log is folded into a fresh one once most of
+// its records are outdated. Shared by every ProductManager of the process.
+public class ProductIndex {
+    private static final String LEGACY_PREF_NAME = "ProductIndex"; // One store entry per product
+    private static final String INDEX_LOG = "_index"; // List codes never start with '_'
+    private static final String OP_VERSION = "version";
+    private static final String OP_PUT = "index";
+    private static final String OP_REMOVE = "unindex";
+    private static final int INDEX_VERSION = 2;
+    private static final int COMPACT_MIN_RECORDS = 1024;
+    private static final String TAG = "ProductIndex";
+
+    private static ProductIndex instance;
+
+    private final Context context;
+    private final File filesDir;
+    private final ProductLog productLog;
+    private final LongIntMap slotsById = new LongIntMap();
+    // List codes by slot, so an entry costs a long and an int instead of a boxed pair
+    private final List<String> listCodes = new ArrayList<>();
+    private final Map<String, Integer> slotsByListCode = new HashMap<>();
+    private boolean built;
+    private int recordCount; // Records in the log, written or queued
+
+    private ProductIndex(Context context) {
+        this.context = context;
+        filesDir = context.getFilesDir();
+        productLog = new ProductLog(context);
+        load();
+    }
+
+    // Shared index of the app's files, loaded on first use
+    public static synchronized ProductIndex forContext(Context context) {
+        if (instance == null || !instance.filesDir.equals(context.getFilesDir())) {
+            instance = new ProductIndex(context);
+        }
+        return instance;
+    }
+
+    // False when the index was never built or was written by another version.
+    // Only then does it need a rebuild, a missing id is simply not stored.
+    public synchronized boolean isBuilt() {
+        return built;
+    }
+
+    public synchronized int size() {
+        return slotsById.size();
+    }
+
+    // List code holding the product, or null if the id is unknown
+    public synchronized String getListCode(long productId) {
+        int slot = slotsById.get(productId);
+        return slot != LongIntMap.MISSING ? listCodes.get(slot) : null;
+    }
+
+    // Queue before the product's own record, see ProductLog.PHASE_BEFORE_LISTS
+    public synchronized void put(long productId, String listCode) {
+        slotsById.put(productId, slotOf(listCode));
+        append(record(OP_PUT, productId, listCode), ProductLog.PHASE_BEFORE_LISTS);
+    }
+
+    // Queue after the product's own record, see ProductLog.PHASE_AFTER_LISTS
+    public synchronized void remove(long productId) {
+        if (slotsById.remove(productId) != LongIntMap.MISSING) {
+            append(record(OP_REMOVE, productId, null), ProductLog.PHASE_AFTER_LISTS);
+        }
+    }
+
+    public synchronized void putAll(Map<Long, String> listCodesById) {
+        for (Map.Entry<Long, String> entry : listCodesById.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public synchronized void removeAll(Collection<Long> productIds) {
+        for (long productId : productIds) {
+            remove(productId);
+        }
+    }
+
+    // Replace the whole index from a list code -> product ids scan. An
+    // incomplete scan serves this process but is not stored as built, so the
+    // next start scans again.
+    public synchronized void rebuild(Map<String, ? extends Collection<Long>> productIdsByList,
+                                     boolean complete) {
+        productLog.truncate(INDEX_LOG);
+        slotsById.clear();
+        listCodes.clear();
+        slotsByListCode.clear();
+        recordCount = 0;
+
+        if (complete) {
+            append(versionRecord(), ProductLog.PHASE_BEFORE_LISTS);
+        }
+        int count = 0;
+        for (Map.Entry<String, ? extends Collection<Long>> entry : productIdsByList.entrySet()) {
+            for (long productId : entry.getValue()) {
+                put(productId, entry.getKey());
+                count++;
+            }
+        }
+        built = true;
+
+        // The index used to live in a store of its own
+        Stores.delete(context, LEGACY_PREF_NAME);
+        Log.d(TAG, "Rebuilt index with " + count + " products in " + productIdsByList.size() + " lists");
+    }
+
+    public synchronized void clear() {
+        rebuild(new HashMap<String, List<Long>>(), true);
+    }
+
+    private void load() {
+        List<JSONObject> records;
+        try {
+            records = productLog.read(INDEX_LOG);
+        } catch (IOException e) {
+            // Derived data, a rebuild from the lists replaces it
+            Log.e(TAG, "Unreadable index, it will be rebuilt: " + e.getMessage());
+            return;
+        }
+        recordCount = records.size();
+        if (records.isEmpty() || records.get(0).optInt(OP_VERSION, 0) != INDEX_VERSION) {
+            return; // Never built, or written by another version
+        }
+
+        try {
+            for (JSONObject record : records) {
+                switch (record.getString("op")) {
+                    case OP_PUT:
+                        slotsById.put(ProductLog.readId(record), slotOf(record.getString("list")));
+                        break;
+                    case OP_REMOVE:
+                        slotsById.remove(ProductLog.readId(record));
+                        break;
+                    default:
+                        break;
+                }
+            }
+            built = true;
+        } catch (JSONException e) {
+            Log.e(TAG, "Unreadable index, it will be rebuilt: " + e.getMessage());
+            slotsById.clear();
+        }
+        Log.d(TAG, "Loaded index with " + slotsById.size() + " products from " + recordCount + " records");
+    }
+
+    private int slotOf(String listCode) {
+        Integer slot = slotsByListCode.get(listCode);
+        if (slot == null) {
+            slot = listCodes.size();
+            listCodes.add(listCode);
+            slotsByListCode.put(listCode, slot);
+        }
+        return slot;
+    }
+
+    private void append(JSONObject record, int phase) {
+        if (record == null) {
+            return;
+        }
+        productLog.append(INDEX_LOG, record, phase);
+        recordCount++;
+        if (recordCount > COMPACT_MIN_RECORDS && recordCount > 2 * slotsById.size()) {
+            PersistenceExecutor.submit("compact:" + INDEX_LOG, this::compact);
+        }
+    }
+
+    // Fold the written records into one put per live entry. Works from the
+    // file rather than from memory, which may be ahead of the list logs.
+    private void compact() {
+        productLog.rewrite(INDEX_LOG, written -> {
+            if (written.isEmpty() || written.get(0).optInt(OP_VERSION, 0) != INDEX_VERSION) {
+                return written; // Nothing to fold, or not an index this version can read
+            }
+            Map<Long, String> live = new LinkedHashMap<>();
+            try {
+                for (JSONObject record : written) {
+                    String op = record.getString("op");
+                    if (OP_PUT.equals(op)) {
+                        live.put(ProductLog.readId(record), record.getString("list"));
+                    } else if (OP_REMOVE.equals(op)) {
+                        live.remove(ProductLog.readId(record));
+                    }
+                }
+            } catch (JSONException e) {
+                Log.e(TAG, "Keeping index log as is: " + e.getMessage());
+                return written;
+            }
+
+            List<JSONObject> folded = new ArrayList<>(live.size() + 1);
+            folded.add(versionRecord());
+            for (Map.Entry<Long, String> entry : live.entrySet()) {
+                folded.add(record(OP_PUT, entry.getKey(), entry.getValue()));
+            }
+            Log.d(TAG, "Compacted index log from " + written.size() + " to " + folded.size() + " records");
+            return folded;
+        });
+        // Not taken inside the fold, which runs under the log's file lock
+        synchronized (this) {
+            recordCount = slotsById.size() + 1;
+        }
+    }
+
+    private static JSONObject record(String op, long productId, String listCode) {
+        try {
+            JSONObject record = new JSONObject();
+            record.put("op", op);
+            record.put("id", String.valueOf(productId));
+            if (listCode != null) {
+                record.put("list", listCode);
+            }
+            return record;
+        } catch (JSONException e) {
+            Log.e(TAG, "Error building index record: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static JSONObject versionRecord() {
+        try {
+            return new JSONObject().put("op", OP_VERSION).put(OP_VERSION, INDEX_VERSION);
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.esb.quicklist.utilities;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
+
+import com.esb.quicklist.models.Product;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Pull-parser decoding of stored product JSON straight into Product objects,
+// without building a JSONObject tree first
+public final class ProductJsonReader {
+    private static final String TAG = "ProductJsonReader";
+
+    // Receives one list at a time while a {listCode: [...]} document is read
+    public interface ListVisitor {
+        void visit(String listCode, List<Product> products);
+    }
+
+    private ProductJsonReader() {}
+
+    // Decode a JSON array of products
+    public static List<Product> readProducts(String json) throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            return readProductArray(reader);
+        }
+    }
+
+    // Walk a {listCode: [...]} document, holding only one list in memory at a time
+    public static void readLists(String json, ListVisitor visitor) throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String listCode = reader.nextName();
+                visitor.visit(listCode, readProductArray(reader));
+            }
+            reader.endObject();
+        }
+    }
+
+    private static List<Product> readProductArray(JsonReader reader) throws IOException {
+        List<Product> products = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Product product = readProduct(reader);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        reader.endArray();
+        return products;
+    }
+
+    private static Product readProduct(JsonReader reader) throws IOException {
+        String id = null;
+        String name = null;
+        String category = null;
+        int quantity = 0;
+        boolean hasQuantity = false;
+        boolean purchased = false;
+        String addedBy = null;
+        String listCode = null;
+        String notes = "";
+        double price = 0.0;
+        long addedDate = System.currentTimeMillis();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+
+            switch (field) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "name":
+                    name = reader.nextString();
+                    break;
+                case "category":
+                    category = reader.nextString();
+                    break;
+                case "quantity":
+                    quantity = reader.nextInt();
+                    hasQuantity = true;
+                    break;
+                case "purchased":
+                    purchased = reader.nextBoolean();
+                    break;
+                case "addedBy":
+                    addedBy = reader.nextString();
+                    break;
+                case "listCode":
+                    listCode = reader.nextString();
+                    break;
+                case "notes":
+                    notes = reader.nextString();
+                    break;
+                case "price":
+                    price = reader.nextDouble();
+                    break;
+                case "addedDate":
+                    addedDate = reader.nextLong();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // Same required fields as the JSONObject based reader had
+        if (id == null || name == null || category == null || !hasQuantity
+                || addedBy == null || listCode == null) {
+            Log.e(TAG, "Skipping product record with missing fields, ID: " + id);
+            return null;
+        }
+
+        long productId;
+        try {
+            productId = Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            Log.e(TAG, "Skipping product record with invalid ID: " + id);
+            return null;
+        }
+
+        Product product = new Product(name, category, quantity, addedBy, listCode, notes, price);
+        product.setId(productId);
+        product.setPurchased(purchased);
+        product.setAddedDate(addedDate);
+        return product;
+    }
+}
@@ -0,0 +1,350 @@
+package com.esb.quicklist.utilities;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.esb.quicklist.storage.FileSync;
+import com.esb.quicklist.storage.PersistenceExecutor;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Append-only per-list log of product mutations, one JSON record per line.
+// Appends are queued and written in order by the PersistenceExecutor.
+public class ProductLog {
+    public static final String OP_ADD = "add";
+    public static final String OP_UPDATE = "update";
+    public static final String OP_DELETE = "delete";
+    public static final String OP_BATCH = "batch";
+
+    private static final String LOG_DIR = "products";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String TAG = "ProductLog";
+    private static final String WRITE_KEY = "product-log";
+
+    // Write order within one flush. Index additions are written before the
+    // list lines they describe and index removals after them, so a write cut
+    // short leaves at worst an index entry for a product that is not stored.
+    // Compaction keeps that order by writing the queue first, see writeQueued.
+    static final int PHASE_BEFORE_LISTS = 0;
+    static final int PHASE_LISTS = 1;
+    static final int PHASE_AFTER_LISTS = 2;
+    private static final int PHASE_COUNT = 3;
+
+    // Lines waiting to be written, in the order they were queued, shared by every instance
+    private static final List<PendingLine> PENDING = new ArrayList<>();
+    // Held while log files are written, read or removed
+    private static final Object FILE_LOCK = new Object();
+
+    private final File logDir;
+
+    public ProductLog(Context context) {
+        logDir = new File(context.getFilesDir(), LOG_DIR);
+    }
+
+    // Build a record: {"op": ..., "id": ..., "product": {...}}. The id is
+    // written as a string, as it always was, so it never goes through a double.
+    public static JSONObject record(String op, long productId, JSONObject productJson) throws JSONException {
+        JSONObject record = new JSONObject();
+        record.put("op", op);
+        record.put("id", String.valueOf(productId));
+        if (productJson != null) {
+            record.put("product", productJson);
+        }
+        return record;
+    }
+
+    // Numeric id of a record or of a product JSON object
+    public static long readId(JSONObject json) throws JSONException {
+        String id = json.getString("id");
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new JSONException("Invalid product id: " + id);
+        }
+    }
+
+    // Several records written as one line, so a torn write drops all of them
+    public static JSONObject batchRecord(JSONArray records) throws JSONException {
+        JSONObject record = new JSONObject();
+        record.put("op", OP_BATCH);
+        record.put("ops", records);
+        return record;
+    }
+
+    // Queue one record for its list. The caller's in-memory state already has
+    // the change, the line is written later on the persistence thread.
+    public void append(String listCode, JSONObject record) {
+        append(listCode, record, PHASE_LISTS);
+    }
+
+    // Queue a record for a log that is not a list's, written in the given phase
+    void append(String logName, JSONObject record, int phase) {
+        synchronized (PENDING) {
+            PENDING.add(new PendingLine(logName, record.toString(), phase));
+        }
+        PersistenceExecutor.submit(WRITE_KEY, this::writePending);
+    }
+
+    // Queue records for several lists at once, so they are written together
+    // or, if any list fails, not at all
+    public void appendAll(Map<String, JSONObject> recordsByList) {
+        synchronized (PENDING) {
+            for (Map.Entry<String, JSONObject> entry : recordsByList.entrySet()) {
+                PENDING.add(new PendingLine(entry.getKey(), entry.getValue().toString(), PHASE_LISTS));
+            }
+        }
+        PersistenceExecutor.submit(WRITE_KEY, this::writePending);
+    }
+
+    // Write every queued line, one append per log and phase. A failed append
+    // rolls the other logs back, keeps the lines queued and retries later.
+    private void writePending() {
+        synchronized (FILE_LOCK) {
+            List<PendingLine> lines;
+            synchronized (PENDING) {
+                if (PENDING.isEmpty()) {
+                    return;
+                }
+                lines = new ArrayList<>(PENDING);
+                PENDING.clear();
+            }
+
+            if (!logDir.exists() && !logDir.mkdirs()) {
+                Log.e(TAG, "Could not create log directory: " + logDir);
+                requeue(lines);
+                PersistenceExecutor.retryLater(WRITE_KEY, this::writePending);
+                return;
+            }
+
+            List<Map<String, StringBuilder>> linesByPhase = new ArrayList<>(PHASE_COUNT);
+            for (int phase = 0; phase < PHASE_COUNT; phase++) {
+                linesByPhase.add(new LinkedHashMap<>());
+            }
+            for (PendingLine line : lines) {
+                Map<String, StringBuilder> linesByLog = linesByPhase.get(line.phase);
+                StringBuilder logLines = linesByLog.get(line.logName);
+                if (logLines == null) {
+                    logLines = new StringBuilder();
+                    linesByLog.put(line.logName, logLines);
+                }
+                logLines.append(line.line).append('\n');
+            }
+
+            Map<String, Long> previousSizes = new LinkedHashMap<>();
+            for (Map<String, StringBuilder> linesByLog : linesByPhase) {
+                for (Map.Entry<String, StringBuilder> entry : linesByLog.entrySet()) {
+                    String logName = entry.getKey();
+                    if (!previousSizes.containsKey(logName)) {
+                        previousSizes.put(logName, getLogFile(logName).length());
+                    }
+                    byte[] data = entry.getValue().toString().getBytes(StandardCharsets.UTF_8);
+                    try (FileOutputStream out = new FileOutputStream(getLogFile(logName), true)) {
+                        out.write(data);
+                    } catch (IOException e) {
+                        Log.e(TAG, "Error appending to log " + logName + ": " + e.getMessage());
+                        for (Map.Entry<String, Long> written : previousSizes.entrySet()) {
+                            truncateTo(written.getKey(), written.getValue());
+                        }
+                        requeue(lines);
+                        PersistenceExecutor.retryLater(WRITE_KEY, this::writePending);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    // Write every queued line now, on the persistence thread. False if some
+    // are still queued afterwards, e.g. after a failed append that waits for
+    // its retry.
+    boolean writeQueued() {
+        writePending();
+        synchronized (PENDING) {
+            return PENDING.isEmpty();
+        }
+    }
+
+    // Put lines that could not be written back in front of newer ones
+    private void requeue(List<PendingLine> lines) {
+        synchronized (PENDING) {
+            PENDING.addAll(0, lines);
+        }
+    }
+
+    // Read all records of a list in order, including queued ones that are not
+    // written yet. A torn last line is skipped, anything else that cannot be
+    // read fails the whole read so no caller mistakes part of a log for all of it.
+    public List<JSONObject> read(String listCode) throws IOException {
+        synchronized (FILE_LOCK) {
+            List<JSONObject> records = readWritten(listCode);
+            synchronized (PENDING) {
+                for (PendingLine line : PENDING) {
+                    if (line.logName.equals(listCode)) {
+                        addRecord(records, listCode, line.line);
+                    }
+                }
+            }
+            return records;
+        }
+    }
+
+    private List<JSONObject> readWritten(String logName) throws IOException {
+        List<JSONObject> records = new ArrayList<>();
+        File logFile = getLogFile(logName);
+        if (!logFile.exists()) {
+            return records;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8))) {
+            String torn = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (torn != null) {
+                    throw new IOException("Unreadable record in the middle of log " + logName);
+                }
+                if (!addRecord(records, logName, line)) {
+                    torn = line;
+                }
+            }
+        }
+        return records;
+    }
+
+    // Replace the written part of a log with what the folder makes of it.
+    // Queued lines stay queued and are appended to the new file later. Runs
+    // under the file lock, so no append lands in between.
+    void rewrite(String logName, Folder folder) {
+        synchronized (FILE_LOCK) {
+            List<JSONObject> written;
+            try {
+                written = readWritten(logName);
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading log " + logName + " for rewrite: " + e.getMessage());
+                return;
+            }
+            File logFile = getLogFile(logName);
+
+            StringBuilder data = new StringBuilder();
+            for (JSONObject record : folder.fold(written)) {
+                data.append(record.toString()).append('\n');
+            }
+
+            File tempFile = new File(logDir, logName + LOG_SUFFIX + TEMP_SUFFIX);
+            try (FileOutputStream out = new FileOutputStream(tempFile)) {
+                out.write(data.toString().getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            } catch (IOException e) {
+                Log.e(TAG, "Error rewriting log " + logName + ": " + e.getMessage());
+                tempFile.delete();
+                return;
+            }
+            if (!tempFile.renameTo(logFile)) {
+                Log.e(TAG, "Could not replace log " + logName);
+                tempFile.delete();
+                return;
+            }
+            FileSync.syncDirectory(logDir);
+        }
+    }
+
+    interface Folder {
+        List<JSONObject> fold(List<JSONObject> written);
+    }
+
+    // False if the line is not a record, e.g. the torn end of an interrupted write
+    private static boolean addRecord(List<JSONObject> records, String listCode, String line) {
+        if (line.isEmpty()) {
+            return true;
+        }
+        try {
+            records.add(new JSONObject(line));
+            return true;
+        } catch (JSONException e) {
+            Log.e(TAG, "Skipping unreadable log record for list " + listCode);
+            return false;
+        }
+    }
+
+    // Size of the log in bytes, counting lines still queued, used to decide
+    // when to compact
+    public long size(String listCode) {
+        long size = getLogFile(listCode).length();
+        synchronized (PENDING) {
+            for (PendingLine line : PENDING) {
+                if (line.logName.equals(listCode)) {
+                    size += line.byteCount;
+                }
+            }
+        }
+        return size;
+    }
+
+    // Cut the log back to an earlier size, used to roll back a failed write
+    private void truncateTo(String listCode, long length) {
+        File logFile = getLogFile(listCode);
+        if (!logFile.exists()) {
+            return;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+            file.setLength(length);
+        } catch (IOException e) {
+            Log.e(TAG, "Error rolling back log for list " + listCode + ": " + e.getMessage());
+        }
+    }
+
+    // Drop the log, and any queued lines, once the list has been folded into a
+    // snapshot or deleted
+    public void truncate(String listCode) {
+        synchronized (FILE_LOCK) {
+            synchronized (PENDING) {
+                Iterator<PendingLine> lines = PENDING.iterator();
+                while (lines.hasNext()) {
+                    if (lines.next().logName.equals(listCode)) {
+                        lines.remove();
+                    }
+                }
+            }
+            File logFile = getLogFile(listCode);
+            if (logFile.exists() && !logFile.delete()) {
+                Log.e(TAG, "Could not delete log for list " + listCode);
+            }
+        }
+    }
+
+    private File getLogFile(String listCode) {
+        return new File(logDir, listCode + LOG_SUFFIX);
+    }
+
+    private static final class PendingLine {
+        final String logName;
+        final String line;
+        final int phase;
+        // UTF-8 bytes the line takes in the file, with its newline
+        final int byteCount;
+
+        PendingLine(String logName, String line, int phase) {
+            this.logName = logName;
+            this.line = line;
+            this.phase = phase;
+            byteCount = line.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+    }
+}
@@ -1,228 +1,217 @@
 package com.esb.quicklist.utilities;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.util.Log;
 import com.esb.quicklist.models.Product;
+import com.esb.quicklist.storage.KeyValueStore;
+import com.esb.quicklist.storage.PersistenceExecutor;
+import com.esb.quicklist.storage.Stores;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class ProductManager {
     private static final String PREF_NAME = "ProductPrefs";
-    private static final String KEY_PRODUCTS = "all_products";
+    private static final String SHARD_PREF_PREFIX = "ProductPrefs_";
+    private static final String KEY_PRODUCTS = "all_products"; // Legacy single-blob layout
+    private static final String KEY_LIST_CODES = "list_codes";
+    private static final String KEY_SHARD_PRODUCTS = "products";
+    private static final String KEY_JSON_SNAPSHOTS_MIGRATED = "json_snapshots_migrated";
+    private static final long COMPACT_THRESHOLD_BYTES = 32 * 1024;
     private static final String TAG = "ProductManager";
 
-    private final SharedPreferences sharedPreferences;
-    private final AuthManager authManager;
+    // Shared by every ProductManager instance so appends and compaction never interleave
+    private static final Object STORAGE_LOCK = new Object();
+    // Lists whose snapshot or log could not be read, guarded by STORAGE_LOCK
+    private static final Set<String> UNREADABLE_LISTS = new HashSet<>();
 
+    private final Context context;
+    private final ProductLog productLog;
+    private final ProductSnapshots productSnapshots;
+    private final ProductCache productCache;
+    private final AuthManager authManager;
+    // Set by ensureReady(), guarded by STORAGE_LOCK
+    private KeyValueStore store;
+    private ProductIndex productIndex;
+    private boolean ready;
+    private boolean jsonSnapshotsMigrated;
+
+    // Reads nothing, so a screen can create it in onCreate. The store, the
+    // index and the one-time migrations are loaded by the first call, which
+    // for the screens is their background load.
     public ProductManager(Context context) {
-        sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.context = context;
+        productLog = new ProductLog(context);
+        productSnapshots = new ProductSnapshots(context);
+        productCache = ProductCache.getInstance();
         authManager = new AuthManager(context);
     }
 
-    // Save product to SharedPreferences
-    public boolean addProduct(Product product) {
-        try {
-            // Get all products
-            JSONObject allProducts = getAllProductsJson();
-
-            // Get or create array for this list
-            JSONArray listProducts;
-            if (allProducts.has(product.getListCode())) {
-                listProducts = allProducts.getJSONArray(product.getListCode());
-            } else {
-                listProducts = new JSONArray();
+    private void ensureReady() {
+        synchronized (STORAGE_LOCK) {
+            if (ready) {
+                return;
+            }
+            ready = true; // The migrations below call back into public methods
+            store = Stores.open(context, PREF_NAME);
+            productIndex = ProductIndex.forContext(context);
+            IdGenerator.init(context);
+            boolean migrated = migrateLegacyProducts();
+            migrated |= migrateJsonSnapshots();
+            if (migrated || !productIndex.isBuilt()) {
+                rebuildIndex();
             }
+        }
+    }
 
-            // Convert product to JSON
-            JSONObject productJson = new JSONObject();
-            productJson.put("id", product.getId());
-            productJson.put("name", product.getName());
-            productJson.put("category", product.getCategory());
-            productJson.put("quantity", product.getQuantity());
-            productJson.put("purchased", product.isPurchased());
-            productJson.put("addedBy", product.getAddedBy());
-            productJson.put("listCode", product.getListCode());
-            productJson.put("notes", product.getNotes());
-            productJson.put("price", product.getPrice());
-            productJson.put("addedDate", product.getAddedDate());
-
-            // Add to array
-            listProducts.put(productJson);
-
-            // Save back
-            allProducts.put(product.getListCode(), listProducts);
-            saveAllProducts(allProducts);
+    // Save product - appends an "add" record to its list's log. Returns the
+    // stored insertion, or null if it failed.
+    public ProductChange addProduct(Product product) {
+        ensureReady();
+        try {
+            JSONObject record = ProductLog.record(ProductLog.OP_ADD, product.getId(), toJson(product));
+
+            ProductChange change;
+            synchronized (STORAGE_LOCK) {
+                loadShard(product.getListCode()); // Never add to a list that cannot be read
+                // Indexed first, the index must never miss a stored product
+                productIndex.put(product.getId(), product.getListCode());
+                productLog.append(product.getListCode(), record);
+                applyToCache(product.getListCode(), record);
+                registerListCode(product.getListCode());
+                change = storedChange(ProductChange.Type.INSERT, product.getListCode(), product.getId());
+            }
+            compactIfNeeded(product.getListCode());
 
             Log.d(TAG, "✓ Product added: " + product.getName() +
                     " ID: " + product.getId() +
                     " to list: " + product.getListCode());
-            return true;
-        } catch (JSONException e) {
+            return change;
+        } catch (JSONException | IOException e) {
             Log.e(TAG, "Error adding product: " + e.getMessage());
-            return false;
+            return null;
         }
     }
 
-    // Get products for a specific list
+    // Get products for a specific list. A list that cannot be read comes back
+    // empty, see hasReadError.
     public List<Product> getProductsForList(String listCode) {
+        ensureReady();
         List<Product> products = new ArrayList<>();
-        try {
-            JSONObject allProducts = getAllProductsJson();
-
-            if (allProducts.has(listCode)) {
-                JSONArray listProducts = allProducts.getJSONArray(listCode);
-                for (int i = 0; i < listProducts.length(); i++) {
-                    JSONObject productJson = listProducts.getJSONObject(i);
-
-                    Product product = new Product(
-                            productJson.getString("name"),
-                            productJson.getString("category"),
-                            productJson.getInt("quantity"),
-                            productJson.getString("addedBy"),
-                            productJson.getString("listCode"),
-                            productJson.optString("notes", ""),
-                            productJson.optDouble("price", 0.0)
-                    );
-
-                    product.setId(productJson.getString("id"));
-                    product.setPurchased(productJson.optBoolean("purchased", false));
-                    product.setAddedDate(productJson.optLong("addedDate", System.currentTimeMillis()));
-
-                    products.add(product);
+        synchronized (STORAGE_LOCK) {
+            try {
+                // Callers get copies so editing a product never changes the cache behind our back
+                for (Product product : loadShard(listCode)) {
+                    products.add(new Product(product));
                 }
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading products for list " + listCode + ": " + e.getMessage());
             }
-
-            Log.d(TAG, "Retrieved " + products.size() + " products for list: " + listCode);
-        } catch (JSONException e) {
-            Log.e(TAG, "Error getting products: " + e.getMessage());
         }
+
+        Log.d(TAG, "Retrieved " + products.size() + " products for list: " + listCode +
+                " (cache " + productCache.getStats() + ")");
         return products;
     }
 
-    // Update an existing product
-    public boolean updateProduct(Product updatedProduct) {
+    // Update an existing product - appends an "update" record to its list's log.
+    // Returns the stored update, or null if it failed.
+    public ProductChange updateProduct(Product updatedProduct) {
+        ensureReady();
         try {
-            JSONObject allProducts = getAllProductsJson();
-
-            if (!allProducts.has(updatedProduct.getListCode())) {
-                Log.e(TAG, "List not found: " + updatedProduct.getListCode());
-                return false;
-            }
+            ProductChange change;
+            synchronized (STORAGE_LOCK) {
+                if (!getAllListCodes().contains(updatedProduct.getListCode())) {
+                    Log.e(TAG, "List not found: " + updatedProduct.getListCode());
+                    return null;
+                }
 
-            JSONArray listProducts = allProducts.getJSONArray(updatedProduct.getListCode());
-
-            // Find and update the product
-            for (int i = 0; i < listProducts.length(); i++) {
-                JSONObject productJson = listProducts.getJSONObject(i);
-                if (productJson.getString("id").equals(updatedProduct.getId())) {
-                    // Update all fields
-                    productJson.put("name", updatedProduct.getName());
-                    productJson.put("category", updatedProduct.getCategory());
-                    productJson.put("quantity", updatedProduct.getQuantity());
-                    productJson.put("purchased", updatedProduct.isPurchased());
-                    productJson.put("notes", updatedProduct.getNotes());
-                    productJson.put("price", updatedProduct.getPrice());
-
-                    // Save back
-                    allProducts.put(updatedProduct.getListCode(), listProducts);
-                    saveAllProducts(allProducts);
-
-                    Log.d(TAG, "✓ Product updated: " + updatedProduct.getName() +
-                            " ID: " + updatedProduct.getId());
-                    return true;
+                if (!updatedProduct.getListCode().equals(findListCode(updatedProduct.getId()))) {
+                    Log.e(TAG, "✗ Product not found for update: " + updatedProduct.getId());
+                    return null;
                 }
+
+                JSONObject record = ProductLog.record(ProductLog.OP_UPDATE, updatedProduct.getId(), toJson(updatedProduct));
+                productLog.append(updatedProduct.getListCode(), record);
+                applyToCache(updatedProduct.getListCode(), record);
+                change = storedChange(ProductChange.Type.UPDATE, updatedProduct.getListCode(), updatedProduct.getId());
             }
+            compactIfNeeded(updatedProduct.getListCode());
 
-            Log.e(TAG, "✗ Product not found for update: " + updatedProduct.getId());
-        } catch (JSONException e) {
+            Log.d(TAG, "✓ Product updated: " + updatedProduct.getName() +
+                    " ID: " + updatedProduct.getId());
+            return change;
+        } catch (JSONException | IOException e) {
             Log.e(TAG, "Error updating product: " + e.getMessage());
         }
-        return false;
+        return null;
     }
 
-    // Delete a product - FIXED VERSION
-    public boolean deleteProduct(String productId) {
+    // Delete a product - the index points straight at the list that holds the id.
+    // Returns the stored removal, or null if it failed.
+    public ProductChange deleteProduct(long productId) {
+        ensureReady();
         try {
             Log.d(TAG, "DELETE: Attempting to delete product ID: " + productId);
 
-            if (productId == null || productId.isEmpty()) {
-                Log.e(TAG, "DELETE: Product ID is null or empty!");
-                return false;
-            }
-
-            JSONObject allProducts = getAllProductsJson();
-            boolean found = false;
-
-            // Get all keys (list codes)
-            Iterator<String> keys = allProducts.keys();
-
-            while (keys.hasNext()) {
-                String listCode = keys.next();
-                JSONArray listProducts = allProducts.getJSONArray(listCode);
-                JSONArray newProducts = new JSONArray();
-
-                // Copy all except the one to delete
-                for (int i = 0; i < listProducts.length(); i++) {
-                    JSONObject productJson = listProducts.getJSONObject(i);
-                    String jsonId = productJson.getString("id");
-
-                    if (jsonId.equals(productId)) {
-                        found = true;
-                        Log.d(TAG, "✓ DELETE: Found and removing product: " +
-                                productJson.getString("name") + " ID: " + jsonId);
-                    } else {
-                        newProducts.put(productJson);
-                    }
-                }
-
-                // Update the list
-                if (newProducts.length() > 0) {
-                    allProducts.put(listCode, newProducts);
-                } else {
-                    allProducts.remove(listCode);
-                    Log.d(TAG, "DELETE: Removed empty list: " + listCode);
+            String listCode;
+            ProductChange change = null;
+            synchronized (STORAGE_LOCK) {
+                listCode = findListCode(productId);
+                if (listCode != null) {
+                    Product removed = new Product(loadShard(listCode).get(productId));
+                    JSONObject record = ProductLog.record(ProductLog.OP_DELETE, productId, null);
+                    productLog.append(listCode, record);
+                    applyToCache(listCode, record);
+                    productIndex.remove(productId);
+                    change = new ProductChange(ProductChange.Type.REMOVE, removed,
+                            formatStatistics(loadShard(listCode)));
                 }
             }
 
-            if (found) {
-                saveAllProducts(allProducts);
-                Log.d(TAG, "✓ DELETE: Successfully deleted product ID: " + productId);
-                return true;
+            if (listCode != null) {
+                compactIfNeeded(listCode);
+                Log.d(TAG, "✓ DELETE: Successfully deleted product ID: " + productId +
+                        " from list: " + listCode);
+                return change;
             } else {
                 Log.e(TAG, "✗ DELETE: Product not found with ID: " + productId);
                 // Debug: Log all existing products
                 logAllProducts();
-                return false;
+                return null;
             }
-        } catch (JSONException e) {
+        } catch (JSONException | IOException e) {
             Log.e(TAG, "DELETE: Error deleting product: " + e.getMessage());
-            return false;
+            return null;
         }
     }
 
+    // The product as stored after its record was applied, called under STORAGE_LOCK
+    private ProductChange storedChange(ProductChange.Type type, String listCode, long productId)
+            throws IOException {
+        ProductShard shard = loadShard(listCode);
+        return new ProductChange(type, new Product(shard.get(productId)), formatStatistics(shard));
+    }
+
     // Helper to log all products for debugging
     private void logAllProducts() {
         try {
-            JSONObject allProducts = getAllProductsJson();
             Log.d(TAG, "DEBUG: All products in storage:");
 
-            Iterator<String> keys = allProducts.keys();
-            while (keys.hasNext()) {
-                String listCode = keys.next();
-                JSONArray listProducts = allProducts.getJSONArray(listCode);
-                Log.d(TAG, "  List: " + listCode + " has " + listProducts.length() + " products");
+            for (String listCode : getAllListCodes()) {
+                ProductShard listProducts = loadShard(listCode);
+                Log.d(TAG, "  List: " + listCode + " has " + listProducts.size() + " products");
 
-                for (int i = 0; i < listProducts.length(); i++) {
-                    JSONObject product = listProducts.getJSONObject(i);
-                    Log.d(TAG, "    - ID: " + product.getString("id") +
-                            ", Name: " + product.getString("name"));
+                for (Product product : listProducts) {
+                    Log.d(TAG, "    - ID: " + product.getId() +
+                            ", Name: " + product.getName());
                 }
             }
         } catch (Exception e) {
@@ -232,6 +221,7 @@ public class ProductManager {
 
     // Get categories for a list
     public List<String> getCategoriesForList(String listCode) {
+        ensureReady();
         List<String> categories = new ArrayList<>();
         Set<String> categorySet = new HashSet<>();
 
@@ -250,47 +240,439 @@ public class ProductManager {
 
     // Get statistics for a list
     public String getListStatistics(String listCode) {
-        List<Product> products = getProductsForList(listCode);
-        int totalProducts = products.size();
-        int purchasedCount = 0;
-        double totalCost = 0.0;
-
-        for (Product product : products) {
-            if (product.isPurchased()) {
-                purchasedCount++;
+        ensureReady();
+        // Read straight from the cached shard, nothing here needs a copy
+        synchronized (STORAGE_LOCK) {
+            try {
+                return formatStatistics(loadShard(listCode));
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading statistics for list " + listCode + ": " + e.getMessage());
+                return formatStatistics(new ProductShard());
             }
-            totalCost += product.getTotalPrice();
         }
+    }
+
+    // True if the list's stored products could not be read the last time they
+    // were needed. Its reads come back empty and its writes fail until then.
+    public boolean hasReadError(String listCode) {
+        synchronized (STORAGE_LOCK) {
+            return UNREADABLE_LISTS.contains(listCode);
+        }
+    }
+
+    // Counts and cost are kept by the shard, so this does not walk the products
+    private static String formatStatistics(ProductShard shard) {
+        int totalProducts = shard.size();
+        int purchasedCount = shard.getPurchasedCount();
+        double totalCost = shard.getTotalCost();
 
         return String.format("Total Products: %d\nPurchased: %d\nRemaining: %d\nTotal Cost: $%.2f",
                 totalProducts, purchasedCount, totalProducts - purchasedCount, totalCost);
     }
 
-    // Helper method to get all products JSON
-    private JSONObject getAllProductsJson() {
+    // ==================== BATCH WRITES ====================
+
+    // Stage many adds, updates and deletes and persist them together
+    public Batch beginBatch() {
+        return new Batch();
+    }
+
+    public class Batch {
+        private final List<String> ops = new ArrayList<>();
+        private final List<Product> products = new ArrayList<>();
+        private final List<Long> productIds = new ArrayList<>();
+
+        private Batch() {}
+
+        public Batch add(Product product) {
+            return stage(ProductLog.OP_ADD, product, product.getId());
+        }
+
+        public Batch update(Product product) {
+            return stage(ProductLog.OP_UPDATE, product, product.getId());
+        }
+
+        public Batch delete(long productId) {
+            return stage(ProductLog.OP_DELETE, null, productId);
+        }
+
+        public int size() {
+            return ops.size();
+        }
+
+        private Batch stage(String op, Product product, long productId) {
+            ops.add(op);
+            products.add(product);
+            productIds.add(productId);
+            return this;
+        }
+
+        // One log record per affected list. Every operation is checked first,
+        // and the records are queued together, so the log writer stores either
+        // all staged changes or none of them.
+        public boolean commit() {
+            if (ops.isEmpty()) {
+                return true;
+            }
+            ensureReady();
+
+            Map<String, ProductShard> workingShards = new LinkedHashMap<>();
+            Map<String, JSONArray> recordsByList = new LinkedHashMap<>();
+            Map<Long, String> addedIds = new LinkedHashMap<>();
+            Set<Long> removedIds = new HashSet<>();
+
+            synchronized (STORAGE_LOCK) {
+                try {
+                    for (int i = 0; i < ops.size(); i++) {
+                        String op = ops.get(i);
+                        long productId = productIds.get(i);
+                        Product product = products.get(i);
+
+                        String listCode = product != null
+                                ? product.getListCode()
+                                : findStagedListCode(workingShards, productId);
+                        if (listCode == null) {
+                            Log.e(TAG, "BATCH: Product not found for " + op + ": " + productId);
+                            return false;
+                        }
+
+                        ProductShard shard = workingShards.get(listCode);
+                        if (shard == null) {
+                            shard = new ProductShard(loadShard(listCode));
+                            workingShards.put(listCode, shard);
+                        }
+
+                        if (!ProductLog.OP_ADD.equals(op) && !shard.containsKey(productId)) {
+                            Log.e(TAG, "BATCH: Product not found for " + op + ": " + productId);
+                            return false;
+                        }
+
+                        JSONObject record = ProductLog.record(op, productId,
+                                product != null ? toJson(product) : null);
+                        applyRecord(shard, record);
+
+                        JSONArray listRecords = recordsByList.get(listCode);
+                        if (listRecords == null) {
+                            listRecords = new JSONArray();
+                            recordsByList.put(listCode, listRecords);
+                        }
+                        listRecords.put(record);
+
+                        if (ProductLog.OP_ADD.equals(op)) {
+                            addedIds.put(productId, listCode);
+                            removedIds.remove(productId);
+                        } else if (ProductLog.OP_DELETE.equals(op)) {
+                            addedIds.remove(productId);
+                            removedIds.add(productId);
+                        }
+                    }
+
+                    Map<String, JSONObject> batchRecords = new LinkedHashMap<>();
+                    for (Map.Entry<String, JSONArray> entry : recordsByList.entrySet()) {
+                        batchRecords.put(entry.getKey(), ProductLog.batchRecord(entry.getValue()));
+                    }
+                    // New ids are indexed before the records and removed ids after them
+                    productIndex.putAll(addedIds);
+                    productLog.appendAll(batchRecords);
+                    productIndex.removeAll(removedIds);
+                } catch (JSONException | IOException e) {
+                    Log.e(TAG, "BATCH: Error staging operations: " + e.getMessage());
+                    return false;
+                }
+
+                // The working copies are exactly what the queued records describe
+                for (Map.Entry<String, ProductShard> entry : workingShards.entrySet()) {
+                    productCache.put(entry.getKey(), entry.getValue());
+                    registerListCode(entry.getKey());
+                }
+            }
+
+            for (String listCode : recordsByList.keySet()) {
+                compactIfNeeded(listCode);
+            }
+
+            Log.d(TAG, "✓ BATCH: Committed " + ops.size() + " operations across " +
+                    recordsByList.size() + " list(s)");
+            ops.clear();
+            products.clear();
+            productIds.clear();
+            return true;
+        }
+    }
+
+    // A delete may target a product added earlier in the same batch
+    private String findStagedListCode(Map<String, ProductShard> workingShards, long productId)
+            throws IOException {
+        for (Map.Entry<String, ProductShard> entry : workingShards.entrySet()) {
+            if (entry.getValue().containsKey(productId)) {
+                return entry.getKey();
+            }
+        }
+        return findListCode(productId);
+    }
+
+    // ==================== PRODUCT INDEX ====================
+
+    // Look the id up in the index. An id the index does not know is not
+    // stored. An entry whose list does not hold the id is left over from a
+    // write that did not complete, and is dropped. Only an index that was
+    // never built is rebuilt.
+    private String findListCode(long productId) throws IOException {
+        if (!productIndex.isBuilt()) {
+            rebuildIndex();
+        }
+
+        String listCode = productIndex.getListCode(productId);
+        if (listCode == null) {
+            return null;
+        }
+        if (!loadShard(listCode).containsKey(productId)) {
+            Log.d(TAG, "INDEX: Dropping stale entry for product " + productId);
+            productIndex.remove(productId);
+            return null;
+        }
+        return listCode;
+    }
+
+    // A list that cannot be read is left out, and the index is not stored as
+    // complete so the next start tries again
+    private void rebuildIndex() {
+        synchronized (STORAGE_LOCK) {
+            Map<String, Set<Long>> productIdsByList = new LinkedHashMap<>();
+            boolean complete = true;
+            for (String listCode : getAllListCodes()) {
+                try {
+                    productIdsByList.put(listCode, loadShardIds(listCode));
+                } catch (IOException e) {
+                    Log.e(TAG, "INDEX: Leaving out unreadable list " + listCode + ": " + e.getMessage());
+                    complete = false;
+                }
+            }
+            productIndex.rebuild(productIdsByList, complete);
+        }
+    }
+
+    private Set<Long> loadShardIds(String listCode) throws IOException {
+        Set<Long> productIds = new HashSet<>();
+        for (Product product : loadShard(listCode)) {
+            productIds.add(product.getId());
+        }
+        return productIds;
+    }
+
+    // ==================== SHARD STORAGE ====================
+
+    // Each list code lives in a binary snapshot plus an append-only log of the
+    // mutations made since the last compaction. Lists not compacted since the
+    // binary format was added still have a JSON snapshot in their own store.
+    private KeyValueStore getShardStore(String listCode) {
+        return Stores.open(context, SHARD_PREF_PREFIX + listCode);
+    }
+
+    // Decoded list keyed by product id in list order. Served from the cache when
+    // possible, otherwise rebuilt from the snapshot plus log tail and cached.
+    // Throws rather than return part of a list, so nothing caches, compacts or
+    // removes a list whose files could not be read; they are left as they are.
+    // Callers must hold STORAGE_LOCK and must not modify the returned shard.
+    private ProductShard loadShard(String listCode) throws IOException {
+        ProductShard shard = productCache.get(listCode);
+        if (shard != null) {
+            return shard;
+        }
+
         try {
-            String productsJson = sharedPreferences.getString(KEY_PRODUCTS, "{}");
-            return new JSONObject(productsJson);
-        } catch (JSONException e) {
-            Log.e(TAG, "Error parsing products JSON: " + e.getMessage());
-            return new JSONObject();
+            byte[] encoded = productSnapshots.read(listCode);
+            List<Product> snapshot;
+            if (ProductCodec.isEncoded(encoded)) {
+                snapshot = ProductCodec.decode(encoded, listCode);
+            } else if (encoded != null) {
+                throw new IOException("Unknown snapshot format");
+            } else if (jsonSnapshotsMigrated) {
+                snapshot = new ArrayList<>(); // Only logged so far
+            } else {
+                snapshot = ProductJsonReader.readProducts(getShardStore(listCode).get(KEY_SHARD_PRODUCTS, "[]"));
+            }
+            shard = new ProductShard(snapshot.size());
+            for (Product product : snapshot) {
+                shard.put(product);
+            }
+
+            for (JSONObject record : productLog.read(listCode)) {
+                applyRecord(shard, record);
+            }
+        } catch (IOException | JSONException | RuntimeException e) {
+            UNREADABLE_LISTS.add(listCode);
+            throw new IOException("Could not read products of list " + listCode + ": " + e.getMessage(), e);
+        }
+
+        UNREADABLE_LISTS.remove(listCode);
+        productCache.put(listCode, shard);
+        return shard;
+    }
+
+    // Write-through: keep a cached list in step with the record just appended
+    private void applyToCache(String listCode, JSONObject record) throws JSONException {
+        ProductShard shard = productCache.peek(listCode);
+        if (shard != null) {
+            applyRecord(shard, record);
+            productCache.trim(listCode);
+        }
+    }
+
+    // Replaying a record twice gives the same result, so a crash between
+    // writing a snapshot and truncating the log is harmless
+    private void applyRecord(ProductShard shard, JSONObject record) throws JSONException {
+        switch (record.getString("op")) {
+            case ProductLog.OP_ADD:
+                Product added = fromJson(record.getJSONObject("product"));
+                added.setId(ProductLog.readId(record));
+                shard.put(added);
+                break;
+            case ProductLog.OP_UPDATE:
+                long productId = ProductLog.readId(record);
+                Product existing = shard.get(productId);
+                if (existing != null) {
+                    // Put back as a new copy so the shard's purchased bits and cost follow
+                    JSONObject changes = record.getJSONObject("product");
+                    Product updated = new Product(existing);
+                    updated.setName(changes.getString("name"));
+                    updated.setCategory(changes.getString("category"));
+                    updated.setQuantity(changes.getInt("quantity"));
+                    updated.setPurchased(changes.optBoolean("purchased", false));
+                    updated.setNotes(changes.optString("notes", ""));
+                    updated.setPrice(changes.optDouble("price", 0.0));
+                    shard.put(updated);
+                }
+                break;
+            case ProductLog.OP_DELETE:
+                shard.remove(ProductLog.readId(record));
+                break;
+            case ProductLog.OP_BATCH:
+                JSONArray operations = record.getJSONArray("ops");
+                for (int i = 0; i < operations.length(); i++) {
+                    applyRecord(shard, operations.getJSONObject(i));
+                }
+                break;
+            default:
+                Log.e(TAG, "Unknown log record: " + record.getString("op"));
+        }
+    }
+
+    private void compactIfNeeded(String listCode) {
+        if (productLog.size(listCode) < COMPACT_THRESHOLD_BYTES) {
+            return;
+        }
+        PersistenceExecutor.submit("compact:" + listCode, () -> compact(listCode));
+    }
+
+    // Fold the log into a fresh snapshot and drop the log
+    private void compact(String listCode) {
+        synchronized (STORAGE_LOCK) {
+            if (productLog.size(listCode) < COMPACT_THRESHOLD_BYTES) {
+                return; // Already compacted by an earlier task
+            }
+            // The snapshot replaces the list's queued lines, but the index lines
+            // for the same products must reach disk first. Otherwise a crash
+            // leaves a built index without them. Nothing new is queued while
+            // the lock is held.
+            if (!productLog.writeQueued()) {
+                Log.e(TAG, "Not compacting list " + listCode + " while queued writes wait for a retry");
+                return;
+            }
+
+            ProductShard shard;
+            try {
+                shard = loadShard(listCode);
+            } catch (IOException e) {
+                Log.e(TAG, "Not compacting unreadable list " + listCode + ": " + e.getMessage());
+                return;
+            }
+            if (shard.isEmpty()) {
+                removeShard(listCode, new HashSet<>());
+                return;
+            }
+
+            // The snapshot is synced to disk before the log goes away
+            byte[] encoded = ProductCodec.encode(shard.values());
+            if (!productSnapshots.write(listCode, encoded)) {
+                Log.e(TAG, "Error compacting list " + listCode + ", keeping log");
+                return;
+            }
+            dropJsonSnapshot(listCode);
+            productLog.truncate(listCode);
+            Log.d(TAG, "COMPACTED: " + shard.size() + " products (" + encoded.length + " bytes) for list: " + listCode);
+        }
+    }
+
+    private void removeShard(String listCode, Set<Long> productIds) {
+        synchronized (STORAGE_LOCK) {
+            productSnapshots.delete(listCode);
+            dropJsonSnapshot(listCode);
+            productLog.truncate(listCode);
+            productIndex.removeAll(productIds); // After the list's files are gone
+            productCache.invalidate(listCode);
+            Set<String> listCodes = getAllListCodes();
+            if (listCodes.remove(listCode)) {
+                saveListCodes(listCodes);
+            }
         }
     }
 
-    // Helper method to save all products
-    private void saveAllProducts(JSONObject allProducts) {
-        sharedPreferences.edit().putString(KEY_PRODUCTS, allProducts.toString()).apply();
-        Log.d(TAG, "SAVED: " + allProducts.toString());
+    // Remove the pre-binary JSON snapshot of a list. Once migrateJsonSnapshots
+    // has converted them there are none left, and nothing is deleted.
+    private void dropJsonSnapshot(String listCode) {
+        if (!jsonSnapshotsMigrated) {
+            Stores.delete(context, SHARD_PREF_PREFIX + listCode);
+        }
+    }
+
+    private JSONObject toJson(Product product) throws JSONException {
+        JSONObject productJson = new JSONObject();
+        productJson.put("id", String.valueOf(product.getId()));
+        productJson.put("name", product.getName());
+        productJson.put("category", product.getCategory());
+        productJson.put("quantity", product.getQuantity());
+        productJson.put("purchased", product.isPurchased());
+        productJson.put("addedBy", product.getAddedBy());
+        productJson.put("listCode", product.getListCode());
+        productJson.put("notes", product.getNotes());
+        productJson.put("price", product.getPrice());
+        productJson.put("addedDate", product.getAddedDate());
+        return productJson;
+    }
+
+    private Product fromJson(JSONObject productJson) throws JSONException {
+        Product product = new Product(
+                productJson.getString("name"),
+                productJson.getString("category"),
+                productJson.getInt("quantity"),
+                productJson.getString("addedBy"),
+                productJson.getString("listCode"),
+                productJson.optString("notes", ""),
+                productJson.optDouble("price", 0.0)
+        );
+
+        product.setId(ProductLog.readId(productJson));
+        product.setPurchased(productJson.optBoolean("purchased", false));
+        product.setAddedDate(productJson.optLong("addedDate", System.currentTimeMillis()));
+        return product;
+    }
+
+    private void registerListCode(String listCode) {
+        Set<String> listCodes = getAllListCodes();
+        if (listCodes.add(listCode)) {
+            saveListCodes(listCodes);
+        }
     }
 
     // Get all list codes that have products
-    private Set<String> getAllListCodes() {
+    public Set<String> getAllListCodes() {
+        ensureReady();
         Set<String> listCodes = new HashSet<>();
         try {
-            JSONObject allProducts = getAllProductsJson();
-            Iterator<String> keys = allProducts.keys();
-            while (keys.hasNext()) {
-                listCodes.add(keys.next());
+            JSONArray codesArray = new JSONArray(store.get(KEY_LIST_CODES, "[]"));
+            for (int i = 0; i < codesArray.length(); i++) {
+                listCodes.add(codesArray.getString(i));
             }
         } catch (Exception e) {
             Log.e(TAG, "Error getting list codes: " + e.getMessage());
@@ -298,20 +680,152 @@ public class ProductManager {
         return listCodes;
     }
 
+    private void saveListCodes(Set<String> listCodes) {
+        JSONArray codesArray = new JSONArray();
+        for (String listCode : listCodes) {
+            codesArray.put(listCode);
+        }
+        store.put(KEY_LIST_CODES, codesArray.toString());
+    }
+
+    // One-time split of the old all_products blob into per-list shards
+    private boolean migrateLegacyProducts() {
+        if (!store.contains(KEY_PRODUCTS)) {
+            return false;
+        }
+
+        try {
+            Set<String> listCodes = getAllListCodes();
+            Map<String, byte[]> snapshots = new LinkedHashMap<>();
+            Set<Long> seenIds = new HashSet<>();
+            int[] renumbered = new int[1];
+
+            // Streamed one list at a time, the blob is never held as a JSONObject tree
+            ProductJsonReader.readLists(store.get(KEY_PRODUCTS, "{}"), (listCode, products) -> {
+                renumbered[0] += renumberDuplicates(products, seenIds);
+                snapshots.put(listCode, ProductCodec.encode(products));
+            });
+
+            for (Map.Entry<String, byte[]> entry : snapshots.entrySet()) {
+                if (!productSnapshots.write(entry.getKey(), entry.getValue())) {
+                    throw new IOException("Could not write snapshot for list " + entry.getKey());
+                }
+                listCodes.add(entry.getKey());
+            }
+
+            saveListCodes(listCodes);
+            store.delete(KEY_PRODUCTS);
+            Log.d(TAG, "MIGRATION: Split legacy products into " + snapshots.size() + " list shards, "
+                    + renumbered[0] + " duplicate ids renumbered");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // Keep the legacy blob so the migration is retried on next start
+            Log.e(TAG, "MIGRATION: Error splitting legacy products: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // One-time conversion of the JSON snapshots written before the binary
+    // format, so every list is read from one format. Retried on next start
+    // until every list converted.
+    private boolean migrateJsonSnapshots() {
+        jsonSnapshotsMigrated = store.contains(KEY_JSON_SNAPSHOTS_MIGRATED);
+        if (jsonSnapshotsMigrated) {
+            return false;
+        }
+
+        try {
+            // Ids already taken by binary snapshots stay with their products
+            Set<Long> seenIds = new HashSet<>();
+            Map<String, List<Product>> converted = new LinkedHashMap<>();
+            for (String listCode : getAllListCodes()) {
+                byte[] encoded = productSnapshots.read(listCode);
+                if (encoded != null) {
+                    for (Product product : ProductCodec.decode(encoded, listCode)) {
+                        seenIds.add(product.getId());
+                    }
+                    Stores.delete(context, SHARD_PREF_PREFIX + listCode); // Left over by a compaction
+                    continue;
+                }
+                KeyValueStore shardStore = getShardStore(listCode);
+                if (shardStore.contains(KEY_SHARD_PRODUCTS)) {
+                    converted.put(listCode, ProductJsonReader.readProducts(shardStore.get(KEY_SHARD_PRODUCTS, "[]")));
+                }
+            }
+
+            int renumbered = 0;
+            for (Map.Entry<String, List<Product>> entry : converted.entrySet()) {
+                renumbered += renumberDuplicates(entry.getValue(), seenIds);
+                if (!productSnapshots.write(entry.getKey(), ProductCodec.encode(entry.getValue()))) {
+                    throw new IOException("Could not write snapshot for list " + entry.getKey());
+                }
+                Stores.delete(context, SHARD_PREF_PREFIX + entry.getKey());
+            }
+
+            store.put(KEY_JSON_SNAPSHOTS_MIGRATED, "true");
+            jsonSnapshotsMigrated = true;
+            Log.d(TAG, "MIGRATION: Converted " + converted.size() + " JSON snapshots, "
+                    + renumbered + " duplicate ids renumbered");
+            return !converted.isEmpty();
+        } catch (IOException | RuntimeException e) {
+            // Lists keep their JSON snapshot, loadShard still reads it
+            Log.e(TAG, "MIGRATION: Error converting JSON snapshots: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Ids used to be currentTimeMillis(), so products added in the same
+    // millisecond share one. The store is keyed by id, the first product keeps
+    // it and every later one gets a fresh id. Returns how many were renumbered.
+    private static int renumberDuplicates(List<Product> products, Set<Long> seenIds) {
+        int renumbered = 0;
+        for (Product product : products) {
+            if (!seenIds.add(product.getId())) {
+                product.setId(IdGenerator.nextId());
+                seenIds.add(product.getId());
+                renumbered++;
+            }
+        }
+        return renumbered;
+    }
+
     // Clear all products (for testing)
     public void clearAllProducts() {
-        sharedPreferences.edit().remove(KEY_PRODUCTS).apply();
+        ensureReady();
+        synchronized (STORAGE_LOCK) {
+            for (String listCode : getAllListCodes()) {
+                productSnapshots.delete(listCode);
+                dropJsonSnapshot(listCode);
+                productLog.truncate(listCode);
+            }
+            store.batch().delete(KEY_PRODUCTS).delete(KEY_LIST_CODES).apply();
+            productIndex.clear();
+            productCache.clear();
+            UNREADABLE_LISTS.clear();
+        }
         Log.d(TAG, "All products cleared");
     }
 
     public void clearProductsForList(String currentListCode) {
+        deleteProductsForList(currentListCode);
+    }
+
+    // Drop a whole list's products at once, returns how many were removed, or
+    // -1 if they could not be read and were left on disk
+    public int deleteProductsForList(String listCode) {
+        ensureReady();
         try {
-            JSONObject allProducts = getAllProductsJson();
-            allProducts.remove(currentListCode);
-            saveAllProducts(allProducts);
-            Log.d(TAG, "Cleared products for list: " + currentListCode);
+            int removed;
+            synchronized (STORAGE_LOCK) {
+                Set<Long> productIds = loadShardIds(listCode);
+                removed = productIds.size();
+                removeShard(listCode, productIds);
+            }
+            Log.d(TAG, "Deleted " + removed + " products for list: " + listCode);
+            return removed;
         } catch (Exception e) {
             Log.e(TAG, "Error clearing products: " + e.getMessage());
+            return -1;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,191 @@
+package com.esb.quicklist.utilities;
+
+import com.esb.quicklist.models.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Products of one list in list order, looked up by their long id through a
+// LongIntMap into a dense array. A bitmap over the same positions tracks the
+// purchased flag, so counting purchased items never touches the products, and
+// a running total in cents keeps the cost of the list.
+public class ProductShard implements Iterable<Product> {
+    private static final int MIN_CAPACITY = 8;
+
+    private final LongIntMap positions;
+    private Product[] products;
+    private long[] purchasedBits;
+    private int end; // First unused position, removed products leave holes below it
+    private int size;
+    private long totalCents;
+
+    public ProductShard() {
+        this(MIN_CAPACITY);
+    }
+
+    public ProductShard(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        positions = new LongIntMap(capacity);
+        products = new Product[capacity];
+        purchasedBits = new long[(capacity + 63) >>> 6];
+    }
+
+    // Deep copy, the products are copied too
+    public ProductShard(ProductShard other) {
+        this(other.size);
+        for (Product product : other) {
+            put(new Product(product));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long productId) {
+        return positions.containsKey(productId);
+    }
+
+    public Product get(long productId) {
+        int position = positions.get(productId);
+        return position != LongIntMap.MISSING ? products[position] : null;
+    }
+
+    // Add the product, or replace the one with the same id in its current position
+    public void put(Product product) {
+        int position = positions.get(product.getId());
+        if (position == LongIntMap.MISSING) {
+            if (end == products.length) {
+                grow();
+            }
+            position = end++;
+            positions.put(product.getId(), position);
+            size++;
+        } else {
+            totalCents -= cents(products[position]);
+        }
+        products[position] = product;
+        totalCents += cents(product);
+        setPurchasedBit(position, product.isPurchased());
+    }
+
+    public Product remove(long productId) {
+        int position = positions.remove(productId);
+        if (position == LongIntMap.MISSING) {
+            return null;
+        }
+        Product removed = products[position];
+        products[position] = null;
+        totalCents -= cents(removed);
+        setPurchasedBit(position, false);
+        size--;
+        if (end > MIN_CAPACITY && size < end / 2) {
+            compact();
+        }
+        return removed;
+    }
+
+    // Change the purchased flag through the shard so the bitmap stays in step
+    public void setPurchased(long productId, boolean purchased) {
+        int position = positions.get(productId);
+        if (position != LongIntMap.MISSING) {
+            products[position].setPurchased(purchased);
+            setPurchasedBit(position, purchased);
+        }
+    }
+
+    public int getPurchasedCount() {
+        int count = 0;
+        for (long word : purchasedBits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Sum of quantity times price over the products, a product's price or
+    // quantity must be changed by putting a new copy
+    public double getTotalCost() {
+        return totalCents / 100.0;
+    }
+
+    // Products in list order
+    public List<Product> values() {
+        List<Product> values = new ArrayList<>(size);
+        for (Product product : this) {
+            values.add(product);
+        }
+        return values;
+    }
+
+    @Override
+    public Iterator<Product> iterator() {
+        return new Iterator<Product>() {
+            private int next = skipHoles(0);
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public Product next() {
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                Product product = products[next];
+                next = skipHoles(next + 1);
+                return product;
+            }
+        };
+    }
+
+    private int skipHoles(int position) {
+        while (position < end && products[position] == null) {
+            position++;
+        }
+        return position;
+    }
+
+    private static long cents(Product product) {
+        return Math.round(product.getTotalPrice() * 100);
+    }
+
+    private void setPurchasedBit(int position, boolean purchased) {
+        if (purchased) {
+            purchasedBits[position >>> 6] |= 1L << position;
+        } else {
+            purchasedBits[position >>> 6] &= ~(1L << position);
+        }
+    }
+
+    private void grow() {
+        products = Arrays.copyOf(products, products.length << 1);
+        purchasedBits = Arrays.copyOf(purchasedBits, (products.length + 63) >>> 6);
+    }
+
+    // Close the holes left by removals, keeping list order
+    private void compact() {
+        int target = 0;
+        for (int position = 0; position < end; position++) {
+            Product product = products[position];
+            if (product != null) {
+                products[target] = product;
+                positions.put(product.getId(), target);
+                target++;
+            }
+        }
+        Arrays.fill(products, target, end, null);
+        Arrays.fill(purchasedBits, 0);
+        for (int position = 0; position < target; position++) {
+            setPurchasedBit(position, products[position].isPurchased());
+        }
+        end = target;
+    }
+}
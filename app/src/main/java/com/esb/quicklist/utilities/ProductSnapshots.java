@@ -0,0 +1,86 @@
+package com.esb.quicklist.utilities;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.esb.quicklist.storage.FileSync;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Binary snapshot file per list, written by compaction next to the list's log
+public class ProductSnapshots {
+    private static final String SNAPSHOT_DIR = "products";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String TAG = "ProductSnapshots";
+
+    private final File snapshotDir;
+
+    public ProductSnapshots(Context context) {
+        snapshotDir = new File(context.getFilesDir(), SNAPSHOT_DIR);
+    }
+
+    // Encoded snapshot bytes, or null if the list has no binary snapshot yet.
+    // A snapshot that exists but cannot be read is an error, not an empty list.
+    public byte[] read(String listCode) throws IOException {
+        File snapshotFile = getSnapshotFile(listCode);
+        if (!snapshotFile.exists()) {
+            return null;
+        }
+
+        byte[] data = new byte[(int) snapshotFile.length()];
+        try (InputStream in = new FileInputStream(snapshotFile)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    throw new IOException("Snapshot for list " + listCode + " ended early");
+                }
+                offset += read;
+            }
+            return data;
+        }
+    }
+
+    // Write to a temp file and rename it over the old snapshot, so a reader
+    // sees either the old snapshot or the new one, never half of one. True
+    // once the rename itself is synced, the log may be dropped then.
+    public boolean write(String listCode, byte[] data) {
+        if (!snapshotDir.exists() && !snapshotDir.mkdirs()) {
+            Log.e(TAG, "Could not create snapshot directory: " + snapshotDir);
+            return false;
+        }
+
+        File tempFile = new File(snapshotDir, listCode + SNAPSHOT_SUFFIX + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(data);
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing snapshot for list " + listCode + ": " + e.getMessage());
+            tempFile.delete();
+            return false;
+        }
+
+        if (!tempFile.renameTo(getSnapshotFile(listCode))) {
+            Log.e(TAG, "Could not replace snapshot for list " + listCode);
+            tempFile.delete();
+            return false;
+        }
+        return FileSync.syncDirectory(snapshotDir);
+    }
+
+    public void delete(String listCode) {
+        File snapshotFile = getSnapshotFile(listCode);
+        if (snapshotFile.exists() && !snapshotFile.delete()) {
+            Log.e(TAG, "Could not delete snapshot for list " + listCode);
+        }
+    }
+
+    private File getSnapshotFile(String listCode) {
+        return new File(snapshotDir, listCode + SNAPSHOT_SUFFIX);
+    }
+}
@@ -0,0 +1,120 @@
+package com.esb.quicklist.utilities;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.esb.quicklist.models.Product;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Collects purchased-state changes made in quick succession, e.g. checking off
+// items while walking through the store. Each toggle returns a changed copy
+// for the screen to show at once; the changes are stored together as one
+// batch when the window closes, or earlier when flush() is called. A batch
+// that fails stays pending and is tried again after the window. Used from
+// the main thread only.
+public class PurchaseToggleBuffer {
+
+    public interface Listener {
+        // The stored state no longer matches what was shown: a batch failed,
+        // or a failed one was stored or given up later. Reload the products.
+        void onStoredStateChanged();
+    }
+
+    private static final long WINDOW_MS = 1000;
+    private static final int MAX_ATTEMPTS = 5; // A product deleted meanwhile fails every attempt
+    private static final String TAG = "PurchaseToggleBuffer";
+
+    private final ProductManager productManager;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushTask = this::flush;
+    // Latest state per product id, in the order the products were first toggled
+    private final Map<Long, Product> pending = new LinkedHashMap<>();
+    private int failedAttempts;
+    private int toggleCount;
+    private int storedCount;
+    private int writeCount;
+
+    public PurchaseToggleBuffer(ProductManager productManager, Listener listener) {
+        this.productManager = productManager;
+        this.listener = listener;
+    }
+
+    // The product passed in is left alone, it may be shared with the shown
+    // list and a kept snapshot. Returns the toggled copy as a change that is
+    // not stored yet.
+    public ProductChange toggle(Product product, boolean purchased) {
+        Product toggled = new Product(product);
+        toggled.setPurchased(purchased);
+        toggleCount++;
+        if (pending.isEmpty()) {
+            handler.postDelayed(flushTask, WINDOW_MS);
+        }
+        pending.put(toggled.getId(), toggled);
+        return new ProductChange(ProductChange.Type.UPDATE, new Product(toggled), null);
+    }
+
+    // Drop the pending change of a product the caller is about to store or
+    // delete itself, so a retried batch cannot overwrite that later
+    public void discard(long productId) {
+        pending.remove(productId);
+        if (pending.isEmpty()) {
+            handler.removeCallbacks(flushTask);
+        }
+    }
+
+    // Store every pending change now. Call before the products are reloaded or
+    // deleted, and when the screen is paused.
+    public boolean flush() {
+        handler.removeCallbacks(flushTask);
+        if (pending.isEmpty()) {
+            return true;
+        }
+
+        ProductManager.Batch batch = productManager.beginBatch();
+        for (Product product : pending.values()) {
+            batch.update(product);
+        }
+        int count = pending.size();
+
+        if (!batch.commit()) {
+            failedAttempts++;
+            if (failedAttempts >= MAX_ATTEMPTS) {
+                Log.e(TAG, "Giving up on " + count + " purchase changes after " + failedAttempts + " attempts");
+                pending.clear();
+                failedAttempts = 0;
+                listener.onStoredStateChanged();
+                return false;
+            }
+            Log.e(TAG, "Failed to store " + count + " purchase changes, retrying");
+            handler.postDelayed(flushTask, WINDOW_MS);
+            if (failedAttempts == 1) {
+                listener.onStoredStateChanged(); // Not again while retrying, the reload flushes too
+            }
+            return false;
+        }
+
+        pending.clear();
+        storedCount += count;
+        writeCount++;
+        Log.d(TAG, "Stored " + count + " purchase changes in one write (" + getStats() + ")");
+        if (failedAttempts > 0) {
+            failedAttempts = 0;
+            listener.onStoredStateChanged(); // The reload after the failure did not show them
+        }
+        return true;
+    }
+
+    // Toggles absorbed by a later toggle or by a shared write
+    public int getCoalescedCount() {
+        return toggleCount - writeCount;
+    }
+
+    public String getStats() {
+        return "toggles=" + toggleCount + " products=" + storedCount + " writes=" + writeCount +
+                " coalesced=" + getCoalescedCount();
+    }
+}
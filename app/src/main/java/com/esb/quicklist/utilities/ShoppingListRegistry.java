@@ -0,0 +1,192 @@
+package com.esb.quicklist.utilities;
+
+import android.util.Log;
+
+import com.esb.quicklist.models.ShoppingList;
+import com.esb.quicklist.storage.KeyValueStore;
+import com.esb.quicklist.storage.PersistenceExecutor;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Process-wide registry of decoded shopping lists keyed by list code. The
+// shopping_lists document is parsed once; every change updates the registry
+// in place and the document is written back off the caller's thread.
+// Codes of deleted lists are kept too, so a restart never hands one out again
+// to a new list while old members may still have it.
+public class ShoppingListRegistry {
+    private static final String KEY_SHOPPING_LISTS = "shopping_lists";
+    private static final String KEY_RETIRED_CODES = "retired_list_codes";
+    private static final String TAG = "ShoppingListRegistry";
+
+    private static ShoppingListRegistry instance;
+
+    private final KeyValueStore store;
+    private final Map<String, ShoppingList> listsByCode = new LinkedHashMap<>();
+    private final Set<String> retiredCodes = new LinkedHashSet<>();
+    private final ListCodeAllocator codeAllocator;
+    // Stored form of the same lists, so a save re-encodes only the changed entry
+    private JSONObject document = new JSONObject();
+    private long hitCount;
+    private long missCount;
+    private long loadCount;
+
+    private ShoppingListRegistry(KeyValueStore store) {
+        this.store = store;
+        load();
+        Set<String> usedCodes = new LinkedHashSet<>(retiredCodes);
+        Iterator<String> listCodes = document.keys();
+        while (listCodes.hasNext()) {
+            usedCodes.add(listCodes.next());
+        }
+        codeAllocator = new ListCodeAllocator(usedCodes);
+    }
+
+    // Shared registry of the store, loaded on first use
+    public static synchronized ShoppingListRegistry forStore(KeyValueStore store) {
+        if (instance == null || !instance.store.equals(store)) {
+            instance = new ShoppingListRegistry(store);
+        }
+        return instance;
+    }
+
+    // Copy of the list, or null if the code is unknown
+    public synchronized ShoppingList get(String listCode) {
+        ShoppingList shoppingList = listsByCode.get(listCode);
+        if (shoppingList == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return new ShoppingList(shoppingList);
+    }
+
+    // Code unique among stored and deleted lists and those handed out since
+    public synchronized String allocateListCode() {
+        return codeAllocator.allocate();
+    }
+
+    // Whether the code was stored, deleted or handed out, so it is never given again
+    synchronized boolean isCodeUsed(String listCode) {
+        return codeAllocator.isIssued(listCode);
+    }
+
+    public synchronized List<ShoppingList> getAll() {
+        List<ShoppingList> lists = new ArrayList<>(listsByCode.size());
+        for (ShoppingList shoppingList : listsByCode.values()) {
+            lists.add(new ShoppingList(shoppingList));
+        }
+        return lists;
+    }
+
+    // Add or replace a list
+    public synchronized boolean put(ShoppingList shoppingList) {
+        try {
+            document.put(shoppingList.getListCode(), toJson(shoppingList));
+            listsByCode.put(shoppingList.getListCode(), new ShoppingList(shoppingList));
+            codeAllocator.markIssued(shoppingList.getListCode());
+            PersistenceExecutor.submit(KEY_SHOPPING_LISTS, this::saveDocument);
+            return true;
+        } catch (JSONException e) {
+            Log.e(TAG, "Error saving shopping list: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Queue the removal on a batch the caller applies, false if the code is unknown
+    public synchronized boolean remove(String listCode, KeyValueStore.Batch batch) {
+        if (listsByCode.remove(listCode) == null) {
+            return false;
+        }
+        document.remove(listCode);
+        retiredCodes.add(listCode);
+        batch.put(KEY_SHOPPING_LISTS, document.toString());
+        batch.put(KEY_RETIRED_CODES, new JSONArray(retiredCodes).toString());
+        return true;
+    }
+
+    // Runs on the persistence thread, so several puts in a row encode the
+    // document once
+    private synchronized void saveDocument() {
+        store.put(KEY_SHOPPING_LISTS, document.toString());
+    }
+
+    // Forget everything after the store was cleared
+    public synchronized void clear() {
+        listsByCode.clear();
+        retiredCodes.clear();
+        document = new JSONObject();
+    }
+
+    public synchronized String getStats() {
+        return "lists=" + listsByCode.size() + " hits=" + hitCount + " misses=" + missCount + " loads=" + loadCount +
+                String.format(" codeSpaceUsed=%.6f%%", codeAllocator.getFillRatio() * 100);
+    }
+
+    private void load() {
+        loadCount++;
+        try {
+            JSONArray retired = new JSONArray(store.get(KEY_RETIRED_CODES, "[]"));
+            for (int i = 0; i < retired.length(); i++) {
+                retiredCodes.add(retired.getString(i));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Error parsing deleted list codes: " + e.getMessage());
+        }
+
+        try {
+            document = new JSONObject(store.get(KEY_SHOPPING_LISTS, "{}"));
+        } catch (JSONException e) {
+            Log.e(TAG, "Error parsing shopping lists: " + e.getMessage());
+            return;
+        }
+
+        Iterator<String> listCodes = document.keys();
+        while (listCodes.hasNext()) {
+            String listCode = listCodes.next();
+            try {
+                listsByCode.put(listCode, fromJson(listCode, document.getJSONObject(listCode)));
+            } catch (JSONException e) {
+                Log.e(TAG, "Skipping unreadable shopping list " + listCode + ": " + e.getMessage());
+            }
+        }
+        Log.d(TAG, "Loaded " + listsByCode.size() + " shopping lists");
+    }
+
+    private static ShoppingList fromJson(String listCode, JSONObject listJson) throws JSONException {
+        String listName = listJson.getString("listName");
+        String creatorEmail = listJson.getString("creatorEmail");
+        String category = listJson.optString("category", "General");
+
+        ShoppingList shoppingList = new ShoppingList(listCode, listName, creatorEmail, category);
+
+        JSONArray membersArray = listJson.getJSONArray("members");
+        for (int i = 0; i < membersArray.length(); i++) {
+            shoppingList.addMember(membersArray.getString(i));
+        }
+        return shoppingList;
+    }
+
+    private static JSONObject toJson(ShoppingList shoppingList) throws JSONException {
+        JSONObject listJson = new JSONObject();
+        listJson.put("listName", shoppingList.getListName());
+        listJson.put("creatorEmail", shoppingList.getCreatorEmail());
+        listJson.put("category", shoppingList.getCategory());
+
+        JSONArray membersArray = new JSONArray();
+        for (String member : shoppingList.getMemberEmails()) {
+            membersArray.put(member);
+        }
+        listJson.put("members", membersArray);
+        return listJson;
+    }
+}
@@ -0,0 +1,239 @@
+package com.esb.quicklist.utilities;
+
+import android.util.Log;
+
+import com.esb.quicklist.models.User;
+import com.esb.quicklist.storage.KeyValueStore;
+import com.esb.quicklist.storage.PersistenceExecutor;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Process-wide email -> User index, plus the reverse list code -> emails index
+// of everyone who created or joined each list. Each user is stored as its own
+// record ("user:<email>"), so a change encodes one user instead of the whole
+// array. The store still writes out its whole file on every save.
+public class UserDirectory {
+    private static final String KEY_LEGACY_USERS = "registered_users"; // Old single-array layout
+    private static final String USER_PREFIX = "user:";
+    private static final String TAG = "UserDirectory";
+
+    private static UserDirectory instance;
+
+    private final KeyValueStore store;
+    private final Map<String, User> usersByEmail = new LinkedHashMap<>();
+    private final Map<String, Set<String>> emailsByList = new HashMap<>();
+
+    private UserDirectory(KeyValueStore store) {
+        this.store = store;
+        migrateLegacyUsers();
+        load();
+    }
+
+    // Shared directory of the store, loaded on first use
+    public static synchronized UserDirectory forStore(KeyValueStore store) {
+        if (instance == null || !instance.store.equals(store)) {
+            instance = new UserDirectory(store);
+        }
+        return instance;
+    }
+
+    // Copy of the user, or null if the email is not registered
+    public synchronized User get(String email) {
+        User user = email != null ? usersByEmail.get(email) : null;
+        return user != null ? new User(user) : null;
+    }
+
+    public synchronized boolean contains(String email) {
+        return usersByEmail.containsKey(email);
+    }
+
+    public synchronized List<User> getAll() {
+        List<User> users = new ArrayList<>(usersByEmail.size());
+        for (User user : usersByEmail.values()) {
+            users.add(new User(user));
+        }
+        return users;
+    }
+
+    // Copies of the users that created or joined the list, found without
+    // looking at anyone else
+    public synchronized List<User> getUsersForList(String listCode) {
+        Set<String> emails = emailsByList.get(listCode);
+        List<User> users = new ArrayList<>();
+        if (emails != null) {
+            for (String email : emails) {
+                users.add(new User(usersByEmail.get(email)));
+            }
+        }
+        return users;
+    }
+
+    // False if the email is already registered
+    public synchronized boolean add(User user) {
+        if (usersByEmail.containsKey(user.getEmail())) {
+            return false;
+        }
+        return update(user);
+    }
+
+    // Store the user, replacing the record with the same email. The record is
+    // written on the persistence thread from whatever the user looks like then.
+    public synchronized boolean update(User user) {
+        String email = user.getEmail();
+        putUser(new User(user));
+        PersistenceExecutor.submit(USER_PREFIX + email, () -> saveUser(email));
+        return true;
+    }
+
+    private synchronized void saveUser(String email) {
+        User user = usersByEmail.get(email);
+        if (user == null) {
+            return; // Cleared before the write ran
+        }
+        try {
+            store.put(USER_PREFIX + email, toJson(user).toString());
+        } catch (JSONException e) {
+            Log.e(TAG, "Error saving user " + email + ": " + e.getMessage());
+        }
+    }
+
+    // Queue the user's record on a batch the caller applies, so it can be
+    // written together with other keys of the same store
+    public synchronized boolean update(User user, KeyValueStore.Batch batch) {
+        try {
+            batch.put(USER_PREFIX + user.getEmail(), toJson(user).toString());
+            putUser(new User(user));
+            return true;
+        } catch (JSONException e) {
+            Log.e(TAG, "Error saving user " + user.getEmail() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Forget the in-memory index after the store was cleared
+    public synchronized void clear() {
+        usersByEmail.clear();
+        emailsByList.clear();
+    }
+
+    // Replace the user in both indexes
+    private void putUser(User user) {
+        User previous = usersByEmail.put(user.getEmail(), user);
+        if (previous != null) {
+            unindexLists(previous.getEmail(), previous.getCreatedLists());
+            unindexLists(previous.getEmail(), previous.getJoinedLists());
+        }
+        indexLists(user.getEmail(), user.getCreatedLists());
+        indexLists(user.getEmail(), user.getJoinedLists());
+    }
+
+    private void indexLists(String email, Set<String> listCodes) {
+        for (String listCode : listCodes) {
+            Set<String> emails = emailsByList.get(listCode);
+            if (emails == null) {
+                emails = new LinkedHashSet<>();
+                emailsByList.put(listCode, emails);
+            }
+            emails.add(email);
+        }
+    }
+
+    private void unindexLists(String email, Set<String> listCodes) {
+        for (String listCode : listCodes) {
+            Set<String> emails = emailsByList.get(listCode);
+            if (emails != null && emails.remove(email) && emails.isEmpty()) {
+                emailsByList.remove(listCode);
+            }
+        }
+    }
+
+    private void load() {
+        for (Map.Entry<String, String> entry : store.scan(USER_PREFIX).entrySet()) {
+            try {
+                putUser(fromJson(new JSONObject(entry.getValue())));
+            } catch (JSONException | IllegalArgumentException e) {
+                Log.e(TAG, "Skipping unreadable user record " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+        Log.d(TAG, "Loaded " + usersByEmail.size() + " users");
+    }
+
+    // One-time split of the registered_users array into per-user records
+    private void migrateLegacyUsers() {
+        if (!store.contains(KEY_LEGACY_USERS)) {
+            return;
+        }
+
+        try {
+            JSONArray jsonArray = new JSONArray(store.get(KEY_LEGACY_USERS, "[]"));
+            KeyValueStore.Batch batch = store.batch();
+            for (int i = 0; i < jsonArray.length(); i++) {
+                JSONObject jsonObject = jsonArray.getJSONObject(i);
+                batch.put(USER_PREFIX + jsonObject.getString("email"), jsonObject.toString());
+            }
+            if (batch.delete(KEY_LEGACY_USERS).commit()) {
+                Log.d(TAG, "MIGRATION: Split " + jsonArray.length() + " users into separate records");
+            }
+        } catch (JSONException e) {
+            // Keep the array so the migration is retried on next start
+            Log.e(TAG, "MIGRATION: Error splitting users: " + e.getMessage());
+        }
+    }
+
+    private static User fromJson(JSONObject jsonObject) throws JSONException {
+        String email = jsonObject.getString("email");
+        String password = jsonObject.getString("password");
+        User.UserRole role = User.UserRole.valueOf(jsonObject.optString("role", "USER"));
+        User user = new User(email, password, role);
+        for (String listCode : readListCodes(jsonObject, "createdLists")) {
+            user.addCreatedList(listCode);
+        }
+        for (String listCode : readListCodes(jsonObject, "joinedLists")) {
+            user.addJoinedList(listCode);
+        }
+        return user;
+    }
+
+    // Stored as a JSON array, older records hold a comma-separated string
+    private static List<String> readListCodes(JSONObject jsonObject, String field) throws JSONException {
+        List<String> listCodes = new ArrayList<>();
+        JSONArray array = jsonObject.optJSONArray(field);
+        if (array != null) {
+            for (int i = 0; i < array.length(); i++) {
+                listCodes.add(array.getString(i));
+            }
+            return listCodes;
+        }
+
+        for (String listCode : jsonObject.optString(field, "").split(",")) {
+            if (!listCode.trim().isEmpty()) {
+                listCodes.add(listCode.trim());
+            }
+        }
+        return listCodes;
+    }
+
+    private static JSONObject toJson(User user) throws JSONException {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("email", user.getEmail());
+        jsonObject.put("password", user.getPassword());
+        jsonObject.put("role", user.getRole().name());
+        if (!user.getCreatedLists().isEmpty()) {
+            jsonObject.put("createdLists", new JSONArray(user.getCreatedLists()));
+        }
+        if (!user.getJoinedLists().isEmpty()) {
+            jsonObject.put("joinedLists", new JSONArray(user.getJoinedLists()));
+        }
+        return jsonObject;
+    }
+}
@@ -0,0 +1,184 @@
+package com.esb.quicklist.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.esb.quicklist.models.Product;
+import com.esb.quicklist.models.ShoppingList;
+import com.esb.quicklist.models.User;
+import com.esb.quicklist.storage.MemoryStore;
+import com.esb.quicklist.storage.PersistenceExecutor;
+import com.esb.quicklist.storage.Stores;
+import com.esb.quicklist.utilities.AuthManager;
+import com.esb.quicklist.utilities.ProductCache;
+import com.esb.quicklist.utilities.ProductManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class QuickListRepositoryTest {
+    private Context context;
+    private QuickListRepository repository;
+    private String listCode;
+    private String email;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        Stores.setFactory(MemoryStore.factory());
+        ProductCache.getInstance().clear();
+        // A fresh database per test, not the shared instance
+        repository = new QuickListRepository(context);
+        listCode = "T1";
+        email = "owner@test";
+    }
+
+    @After
+    public void tearDown() {
+        PersistenceExecutor.flush();
+        Stores.setFactory(null);
+        ProductCache.getInstance().clear();
+    }
+
+    @Test
+    public void firstOpenCopiesThePreferenceData() {
+        AuthManager authManager = new AuthManager(context);
+        assertTrue(authManager.registerUser(email, "secret"));
+        assertTrue(authManager.loginUser(email, "secret"));
+        String storedListCode = authManager.createShoppingList("Groceries");
+        ProductManager productManager = new ProductManager(context);
+        Product milk = new Product("Milk", "Dairy", 2, email, storedListCode, "", 1.5);
+        assertNotNull(productManager.addProduct(milk));
+
+        assertTrue(repository.open());
+        assertTrue(repository.checkLogin(email, "secret"));
+        assertEquals("Groceries", repository.getShoppingList(storedListCode).getListName());
+        List<Product> products = repository.getProductsForList(storedListCode);
+        assertEquals(1, products.size());
+        assertEquals(milk.getId(), products.get(0).getId());
+        assertEquals("Milk", products.get(0).getName());
+    }
+
+    @Test
+    public void productIdsAreStoredAsIntegers() {
+        Product product = product(0, "Milk", "Dairy", false, 1.0);
+        product.setId(Long.MAX_VALUE - 1);
+        assertTrue(repository.addProduct(product));
+
+        try (Cursor cursor = new QuickListDatabase(context).getReadableDatabase().rawQuery(
+                "SELECT typeof(id) FROM products", null)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("integer", cursor.getString(0));
+        }
+        assertEquals(Long.MAX_VALUE - 1, repository.getProductsForList(listCode).get(0).getId());
+        assertTrue(repository.deleteProduct(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void productsOfAListComeBackInInsertOrder() {
+        repository.saveShoppingList(new ShoppingList(listCode, "Groceries", email));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(repository.addProduct(product(i, "Item " + i, "Dairy", false, 1.0)));
+        }
+
+        List<String> names = new ArrayList<>();
+        for (Product product : repository.getProductsForList(listCode)) {
+            names.add(product.getName());
+        }
+        assertEquals(Arrays.asList("Item 0", "Item 1", "Item 2", "Item 3", "Item 4"), names);
+    }
+
+    @Test
+    public void categoriesAreDistinctAndSkipSystem() {
+        repository.addProduct(product(0, "Milk", "Dairy", false, 1.0));
+        repository.addProduct(product(1, "Cheese", "Dairy", false, 1.0));
+        repository.addProduct(product(2, "Bread", "Bakery", false, 1.0));
+        repository.addProduct(product(3, "Marker", "system", false, 0.0));
+
+        assertEquals(new HashSet<>(Arrays.asList("Dairy", "Bakery")),
+                new HashSet<>(repository.getCategoriesForList(listCode)));
+    }
+
+    @Test
+    public void statisticsAndRemainingCountFollowUpdates() {
+        Product milk = product(0, "Milk", "Dairy", false, 1.5);
+        milk.setQuantity(2);
+        repository.addProduct(milk);
+        repository.addProduct(product(1, "Bread", "Bakery", false, 2.0));
+        assertEquals(2, repository.getRemainingCount(listCode));
+
+        milk.setPurchased(true);
+        assertTrue(repository.updateProduct(milk));
+        assertEquals(1, repository.getRemainingCount(listCode));
+        assertEquals("Total Products: 2\nPurchased: 1\nRemaining: 1\nTotal Cost: $5.00",
+                repository.getListStatistics(listCode));
+
+        assertTrue(repository.deleteProduct(milk.getId()));
+        assertEquals(1, repository.deleteProductsForList(listCode));
+        assertEquals(0, repository.getRemainingCount(listCode));
+    }
+
+    @Test
+    public void membershipQueriesAndCascadingDelete() {
+        assertTrue(repository.registerUser(email, "secret", User.UserRole.USER));
+        assertTrue(repository.checkLogin(email, "secret"));
+        assertFalse(repository.checkLogin(email, "wrong"));
+
+        ShoppingList list = new ShoppingList(listCode, "Groceries", email);
+        list.addMember(email);
+        list.addMember("other@test");
+        assertTrue(repository.saveShoppingList(list));
+        repository.addProduct(product(0, "Milk", "Dairy", false, 1.0));
+
+        assertEquals(1, repository.getCreatedShoppingLists(email).size());
+        assertEquals(1, repository.getUserShoppingLists("other@test").size());
+        User user = repository.getUserByEmail(email);
+        assertTrue(user.getCreatedLists().contains(listCode));
+
+        assertTrue(repository.deleteShoppingList(listCode));
+        assertTrue(repository.getUserShoppingLists("other@test").isEmpty());
+        assertTrue(repository.getProductsForList(listCode).isEmpty());
+    }
+
+    @Test
+    public void listQueriesUseTheirIndexes() {
+        // Opened through a second helper only to look at query plans
+        SQLiteDatabase db = new QuickListDatabase(context).getReadableDatabase();
+        assertPlanUses(db, "SELECT DISTINCT category FROM products WHERE list_code = ? AND category <> 'system'",
+                "idx_products_list_category");
+        assertPlanUses(db, "SELECT COUNT(*) FROM products WHERE list_code = ? AND purchased = 0",
+                "idx_products_list_purchased");
+        assertPlanUses(db, "SELECT list_code FROM list_members WHERE email = ?", "idx_members_email");
+        assertPlanUses(db, "SELECT list_code FROM shopping_lists WHERE creator_email = ?", "idx_lists_creator");
+    }
+
+    private Product product(int index, String name, String category, boolean purchased, double price) {
+        Product product = new Product(name, category, 1, email, listCode, "", price);
+        product.setId(1000 + index);
+        product.setPurchased(purchased);
+        return product;
+    }
+
+    private static void assertPlanUses(SQLiteDatabase db, String sql, String index) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, new String[] {"x"})) {
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(cursor.getColumnCount() - 1)).append('\n');
+            }
+        }
+        assertTrue(sql + " planned as:\n" + plan, plan.toString().contains(index));
+    }
+}
@@ -0,0 +1,76 @@
+package com.esb.quicklist.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class FileStoreTest {
+    private File directory;
+
+    @Before
+    public void setUp() {
+        directory = new File(RuntimeEnvironment.getApplication().getFilesDir(), "stores");
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void keepsEntriesAcrossReopen() {
+        assertTrue(new FileStore(new File(directory, "lists.json")).batch().put("a", "1").commit());
+
+        assertEquals("1", new FileStore(new File(directory, "lists.json")).get("a", null));
+    }
+
+    @Test
+    public void movesACorruptFileAsideBeforeWriting() throws IOException {
+        File file = new File(directory, "lists.json");
+        writeRaw(file, "{\"a\":\"1\",\"b\":");
+
+        FileStore store = new FileStore(file);
+        assertFalse(store.contains("a"));
+        assertTrue(store.batch().put("c", "3").commit());
+
+        File corrupt = new File(directory, "lists.json.corrupt");
+        assertEquals("{\"a\":\"1\",\"b\":", new String(Files.readAllBytes(corrupt.toPath()), StandardCharsets.UTF_8));
+        assertEquals("3", new FileStore(file).get("c", null));
+    }
+
+    @Test
+    public void keepsEveryCorruptCopy() throws IOException {
+        File file = new File(directory, "lists.json");
+        writeRaw(file, "first");
+        new FileStore(file);
+        writeRaw(file, "second");
+        new FileStore(file);
+
+        assertTrue(new File(directory, "lists.json.corrupt").exists());
+        assertTrue(new File(directory, "lists.json.corrupt.1").exists());
+    }
+
+    private static void writeRaw(File file, String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
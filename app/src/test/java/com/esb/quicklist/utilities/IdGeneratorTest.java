@@ -0,0 +1,98 @@
+package com.esb.quicklist.utilities;
+
+import android.content.Context;
+
+import com.esb.quicklist.storage.KeyValueStore;
+import com.esb.quicklist.storage.MemoryStore;
+import com.esb.quicklist.storage.Stores;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class IdGeneratorTest {
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    @After
+    public void tearDown() {
+        Stores.setFactory(null);
+    }
+
+    @Test
+    public void idsAreUniqueAndIncreasingUnderContention() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit((Callable<long[]>) () -> {
+                    start.await();
+                    long[] ids = new long[IDS_PER_THREAD];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = IdGenerator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            Set<Long> seen = new HashSet<>();
+            for (Future<long[]> result : results) {
+                long[] ids = result.get();
+                for (int i = 0; i < ids.length; i++) {
+                    assertTrue("Id not positive: " + ids[i], ids[i] > 0);
+                    if (i > 0) {
+                        assertTrue("Ids went back within a thread", ids[i] > ids[i - 1]);
+                    }
+                    assertTrue("Duplicate id " + ids[i], seen.add(ids[i]));
+                }
+            }
+            assertEquals(THREADS * IDS_PER_THREAD, seen.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void laterCallsNeverGoBack() {
+        long previous = IdGenerator.nextId();
+        // More than one millisecond's worth of sequence numbers
+        for (int i = 0; i < 20_000; i++) {
+            long next = IdGenerator.nextId();
+            assertTrue(next > previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    public void continuesAfterTheStoredHighWaterMark() {
+        Context context = RuntimeEnvironment.getApplication();
+        Stores.setFactory(MemoryStore.factory());
+        // Left by an earlier run whose clock was an hour ahead
+        long storedMark = (System.currentTimeMillis() - 1704067200000L + 3_600_000L) << 12;
+        Stores.open(context, "IdGenerator").put("high_water", String.valueOf(storedMark));
+
+        IdGenerator.init(context);
+        long id = IdGenerator.nextId();
+
+        assertTrue(id >>> 10 > storedMark);
+        KeyValueStore store = Stores.open(context, "IdGenerator");
+        assertTrue(Long.parseLong(store.get("high_water", "0")) >= id >>> 10);
+    }
+}
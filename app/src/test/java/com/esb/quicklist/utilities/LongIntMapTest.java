@@ -0,0 +1,107 @@
+package com.esb.quicklist.utilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongIntMapTest {
+
+    @Test
+    public void putGetAndReplace() {
+        LongIntMap map = new LongIntMap();
+        map.put(7L, 0);
+        map.put(-3L, 42);
+        map.put(7L, 5);
+
+        assertEquals(2, map.size());
+        assertEquals(5, map.get(7L));
+        assertEquals(42, map.get(-3L));
+        assertEquals(LongIntMap.MISSING, map.get(8L));
+    }
+
+    @Test
+    public void rejectsNegativeValues() {
+        assertThrows(IllegalArgumentException.class, () -> new LongIntMap().put(1L, -1));
+    }
+
+    @Test
+    public void removingTheHeadOfAProbeRunKeepsTheRestReachable() {
+        // Keys sharing one home slot in a 16 slot table, so they form one probe run
+        List<Long> run = collidingKeys(5);
+        LongIntMap map = new LongIntMap();
+        for (int i = 0; i < run.size(); i++) {
+            map.put(run.get(i), i);
+        }
+
+        assertEquals(0, map.remove(run.get(0)));
+        assertEquals(2, map.remove(run.get(2)));
+        assertEquals(LongIntMap.MISSING, map.remove(run.get(2)));
+
+        assertEquals(3, map.size());
+        assertEquals(LongIntMap.MISSING, map.get(run.get(0)));
+        assertEquals(1, map.get(run.get(1)));
+        assertEquals(3, map.get(run.get(3)));
+        assertEquals(4, map.get(run.get(4)));
+
+        // The freed slots are reused without hiding anything
+        map.put(run.get(0), 10);
+        assertEquals(10, map.get(run.get(0)));
+        assertEquals(4, map.get(run.get(4)));
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomPutsAndRemoves() {
+        Random random = new Random(17);
+        LongIntMap map = new LongIntMap();
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // A small key range keeps the table full of runs that deletes must repair
+            long key = random.nextInt(2_000) * 4096L;
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed != null ? removed : LongIntMap.MISSING, map.remove(key));
+            } else {
+                int value = random.nextInt(1_000_000);
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2_000; key++) {
+            Integer value = expected.get(key * 4096L);
+            assertEquals(value != null ? value : LongIntMap.MISSING, map.get(key * 4096L));
+        }
+    }
+
+    @Test
+    public void clearEmptiesTheMap() {
+        LongIntMap map = new LongIntMap(100);
+        for (long key = 0; key < 100; key++) {
+            map.put(key, (int) key);
+        }
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(50L));
+    }
+
+    // Same spread as LongIntMap's hash, masked to 16 slots
+    private static List<Long> collidingKeys(int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            if (((int) (h ^ (h >>> 32)) & 15) == 3) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,109 @@
+package com.esb.quicklist.utilities;
+
+import com.esb.quicklist.models.Product;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProductCodecTest {
+
+    @Test
+    public void roundTripsEveryField() throws IOException {
+        Product milk = product(Long.MAX_VALUE, "Milk", "Dairy", 2, true, "Semi-skimmed, 2 L", 1.25, 1_700_000_000_000L);
+        Product bread = product(42, "Brød", "Bakery", -1, false, "", 0.0, 1_600_000_000_000L);
+        Product eggs = product(43, "Eggs", "Dairy", 12, false, "", 3.10, 1_700_000_000_500L);
+
+        List<Product> decoded = ProductCodec.decode(ProductCodec.encode(Arrays.asList(milk, bread, eggs)), "L1");
+
+        assertEquals(3, decoded.size());
+        assertSameProduct(milk, decoded.get(0));
+        assertSameProduct(bread, decoded.get(1));
+        assertSameProduct(eggs, decoded.get(2));
+    }
+
+    @Test
+    public void emptyListRoundTrips() throws IOException {
+        byte[] encoded = ProductCodec.encode(Arrays.<Product>asList());
+        assertTrue(ProductCodec.isEncoded(encoded));
+        assertTrue(ProductCodec.decode(encoded, "L1").isEmpty());
+    }
+
+    @Test
+    public void decodesVersionOneStringIds() throws IOException {
+        // Hand-written version 1 snapshot, written before ids became varints
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {'Q', 'L', 'P', 1});
+        out.write(2); // Dictionary
+        writeString(out, "Dairy");
+        writeString(out, "a@example.com");
+        out.write(1); // Products
+        writeString(out, "1700000000123");
+        writeString(out, "Milk");
+        out.write(1); // Purchased
+        out.write(0); // Category
+        out.write(1); // Added by
+        out.write(4); // Quantity 2, zigzag
+        out.write(20); // Added date 10, zigzag
+
+        List<Product> decoded = ProductCodec.decode(out.toByteArray(), "L1");
+
+        assertEquals(1, decoded.size());
+        Product milk = decoded.get(0);
+        assertEquals(1_700_000_000_123L, milk.getId());
+        assertEquals("Milk", milk.getName());
+        assertEquals("Dairy", milk.getCategory());
+        assertEquals("a@example.com", milk.getAddedBy());
+        assertEquals(2, milk.getQuantity());
+        assertTrue(milk.isPurchased());
+        assertEquals(10L, milk.getAddedDate());
+        assertEquals("L1", milk.getListCode());
+    }
+
+    @Test
+    public void rejectsTruncatedAndUnknownData() {
+        byte[] encoded = ProductCodec.encode(Arrays.asList(
+                product(1, "Milk", "Dairy", 1, false, "notes", 1.0, 0L)));
+
+        assertThrows(IOException.class, () -> ProductCodec.decode(Arrays.copyOf(encoded, encoded.length - 3), "L1"));
+        assertThrows(IOException.class, () -> ProductCodec.decode("[]".getBytes(StandardCharsets.UTF_8), "L1"));
+
+        byte[] future = encoded.clone();
+        future[3] = 9;
+        assertThrows(IOException.class, () -> ProductCodec.decode(future, "L1"));
+    }
+
+    private static Product product(long id, String name, String category, int quantity, boolean purchased,
+                                   String notes, double price, long addedDate) {
+        Product product = new Product(name, category, quantity, "a@example.com", "L1", notes, price);
+        product.setId(id);
+        product.setPurchased(purchased);
+        product.setAddedDate(addedDate);
+        return product;
+    }
+
+    private static void assertSameProduct(Product expected, Product actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getQuantity(), actual.getQuantity());
+        assertEquals(expected.isPurchased(), actual.isPurchased());
+        assertEquals(expected.getAddedBy(), actual.getAddedBy());
+        assertEquals(expected.getListCode(), actual.getListCode());
+        assertEquals(expected.getNotes(), actual.getNotes());
+        assertEquals(expected.getPrice(), actual.getPrice(), 0.0);
+        assertEquals(expected.getAddedDate(), actual.getAddedDate());
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes.length);
+        out.write(bytes);
+    }
+}
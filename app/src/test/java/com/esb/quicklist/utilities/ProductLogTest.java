@@ -0,0 +1,122 @@
+package com.esb.quicklist.utilities;
+
+import android.content.Context;
+
+import com.esb.quicklist.storage.PersistenceExecutor;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProductLogTest {
+    private Context context;
+    private ProductLog productLog;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        productLog = new ProductLog(context);
+    }
+
+    // Queued lines are process-wide, none may be left for the next test's directory
+    @After
+    public void tearDown() {
+        PersistenceExecutor.flush();
+    }
+
+    @Test
+    public void readsQueuedAndWrittenRecordsInOrder() throws Exception {
+        productLog.append("L1", ProductLog.record(ProductLog.OP_DELETE, 1, null));
+        PersistenceExecutor.flush();
+        productLog.append("L1", ProductLog.record(ProductLog.OP_DELETE, 2, null));
+
+        List<JSONObject> records = productLog.read("L1");
+
+        assertEquals(2, records.size());
+        assertEquals(1L, ProductLog.readId(records.get(0)));
+        assertEquals(2L, ProductLog.readId(records.get(1)));
+        assertTrue(productLog.read("L2").isEmpty());
+    }
+
+    @Test
+    public void skipsATornLastLine() throws Exception {
+        productLog.append("L1", ProductLog.record(ProductLog.OP_DELETE, 1, null));
+        productLog.append("L1", ProductLog.record(ProductLog.OP_DELETE, 2, null));
+        PersistenceExecutor.flush();
+        // A write cut short by the process dying
+        appendRaw("L1", "{\"op\":\"delete\",\"id\":\"3");
+
+        List<JSONObject> records = productLog.read("L1");
+        assertEquals(2, records.size());
+        assertEquals(2L, ProductLog.readId(records.get(1)));
+    }
+
+    @Test
+    public void failsOnAnUnreadableLineBeforeTheEnd() throws Exception {
+        productLog.append("L1", ProductLog.record(ProductLog.OP_DELETE, 1, null));
+        PersistenceExecutor.flush();
+        appendRaw("L1", "not a record\n");
+        productLog.append("L1", ProductLog.record(ProductLog.OP_DELETE, 2, null));
+        PersistenceExecutor.flush();
+
+        assertThrows(IOException.class, () -> productLog.read("L1"));
+    }
+
+    @Test
+    public void truncateDropsWrittenAndQueuedRecords() throws Exception {
+        productLog.append("L1", ProductLog.record(ProductLog.OP_DELETE, 1, null));
+        PersistenceExecutor.flush();
+        productLog.append("L1", ProductLog.record(ProductLog.OP_DELETE, 2, null));
+        productLog.truncate("L1");
+        PersistenceExecutor.flush();
+
+        assertTrue(productLog.read("L1").isEmpty());
+        assertEquals(0, productLog.size("L1"));
+    }
+
+    @Test
+    public void queuedSizeCountsUtf8Bytes() throws Exception {
+        JSONObject product = new JSONObject().put("name", "Äpfel für 3 €");
+        productLog.append("L1", ProductLog.record(ProductLog.OP_ADD, 1, product));
+        long queuedSize = productLog.size("L1");
+        PersistenceExecutor.flush();
+
+        assertEquals(new File(new File(context.getFilesDir(), "products"), "L1.log").length(), queuedSize);
+    }
+
+    @Test
+    public void failedWriteIsRetried() throws Exception {
+        // A file where the log directory should be makes every append fail
+        File logDir = new File(context.getFilesDir(), "products");
+        assertTrue(logDir.createNewFile());
+        productLog.append("L1", ProductLog.record(ProductLog.OP_DELETE, 1, null));
+
+        assertFalse(PersistenceExecutor.flush());
+        assertEquals(1, productLog.read("L1").size()); // Still queued
+
+        assertTrue(logDir.delete());
+        assertTrue(PersistenceExecutor.flush());
+        assertTrue(new File(logDir, "L1.log").length() > 0);
+        assertEquals(1, productLog.read("L1").size());
+    }
+
+    private void appendRaw(String listCode, String text) throws IOException {
+        File logFile = new File(new File(context.getFilesDir(), "products"), listCode + ".log");
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
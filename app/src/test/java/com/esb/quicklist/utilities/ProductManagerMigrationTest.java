@@ -0,0 +1,97 @@
+package com.esb.quicklist.utilities;
+
+import android.content.Context;
+
+import com.esb.quicklist.models.Product;
+import com.esb.quicklist.storage.MemoryStore;
+import com.esb.quicklist.storage.PersistenceExecutor;
+import com.esb.quicklist.storage.Stores;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProductManagerMigrationTest {
+    // Two products added in the same millisecond by the old currentTimeMillis() ids
+    private static final String SAME_MILLISECOND = "1700000000000";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        Stores.setFactory(MemoryStore.factory());
+        ProductCache.getInstance().clear();
+    }
+
+    @After
+    public void tearDown() {
+        PersistenceExecutor.flush();
+        Stores.setFactory(null);
+        ProductCache.getInstance().clear();
+    }
+
+    @Test
+    public void legacyBlobKeepsProductsSharingAnId() {
+        Stores.open(context, "ProductPrefs").put("all_products", "{"
+                + "\"L1\":[" + product("Milk", "L1") + "," + product("Bread", "L1") + "],"
+                + "\"L2\":[" + product("Eggs", "L2") + "]}");
+
+        ProductManager productManager = new ProductManager(context);
+        List<Product> first = productManager.getProductsForList("L1");
+        List<Product> second = productManager.getProductsForList("L2");
+
+        assertEquals(Arrays.asList("Milk", "Bread"), names(first));
+        assertEquals(Arrays.asList("Eggs"), names(second));
+        // The first product keeps the old id, the others get fresh ones
+        assertEquals(Long.parseLong(SAME_MILLISECOND), first.get(0).getId());
+        assertEquals(3, new HashSet<>(Arrays.asList(
+                first.get(0).getId(), first.get(1).getId(), second.get(0).getId())).size());
+
+        // Each one can be deleted on its own
+        assertNotNull(productManager.deleteProduct(first.get(1).getId()));
+        assertEquals(Arrays.asList("Milk"), names(productManager.getProductsForList("L1")));
+        assertEquals(Arrays.asList("Eggs"), names(productManager.getProductsForList("L2")));
+    }
+
+    @Test
+    public void jsonSnapshotKeepsProductsSharingAnId() {
+        Stores.open(context, "ProductPrefs").put("list_codes", "[\"L3\"]");
+        Stores.open(context, "ProductPrefs_L3").put("products",
+                "[" + product("Apples", "L3") + "," + product("Pears", "L3") + "]");
+
+        ProductManager productManager = new ProductManager(context);
+        List<Product> products = productManager.getProductsForList("L3");
+
+        assertEquals(Arrays.asList("Apples", "Pears"), names(products));
+        assertNotEquals(products.get(0).getId(), products.get(1).getId());
+        // Converted to a binary snapshot, the JSON one is gone
+        assertFalse(Stores.open(context, "ProductPrefs_L3").contains("products"));
+
+        ProductCache.getInstance().clear();
+        assertEquals(Arrays.asList("Apples", "Pears"), names(new ProductManager(context).getProductsForList("L3")));
+    }
+
+    private static String product(String name, String listCode) {
+        return "{\"id\":\"" + SAME_MILLISECOND + "\",\"name\":\"" + name + "\",\"category\":\"Food\","
+                + "\"quantity\":1,\"purchased\":false,\"addedBy\":\"a@example.com\",\"listCode\":\"" + listCode + "\"}";
+    }
+
+    private static List<String> names(List<Product> products) {
+        String[] names = new String[products.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = products.get(i).getName();
+        }
+        return Arrays.asList(names);
+    }
+}
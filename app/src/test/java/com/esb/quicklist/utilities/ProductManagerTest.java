@@ -0,0 +1,192 @@
+package com.esb.quicklist.utilities;
+
+import android.content.Context;
+
+import com.esb.quicklist.models.Product;
+import com.esb.quicklist.storage.MemoryStore;
+import com.esb.quicklist.storage.PersistenceExecutor;
+import com.esb.quicklist.storage.Stores;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProductManagerTest {
+    private Context context;
+    private ProductManager productManager;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        Stores.setFactory(MemoryStore.factory());
+        ProductCache.getInstance().clear();
+        productManager = new ProductManager(context);
+    }
+
+    @After
+    public void tearDown() {
+        PersistenceExecutor.flush();
+        Stores.setFactory(null);
+        ProductCache.getInstance().clear();
+    }
+
+    @Test
+    public void replayingTheLogRestoresTheList() {
+        Product milk = product("Milk", "L1");
+        Product bread = product("Bread", "L1");
+        Product eggs = product("Eggs", "L1");
+        productManager.addProduct(milk);
+        productManager.addProduct(bread);
+        productManager.addProduct(eggs);
+
+        bread.setName("Rye bread");
+        bread.setPurchased(true);
+        assertNotNull(productManager.updateProduct(bread));
+        assertNotNull(productManager.deleteProduct(milk.getId()));
+
+        List<Product> reloaded = reload("L1");
+        assertEquals(Arrays.asList("Rye bread", "Eggs"), names(reloaded));
+        assertTrue(reloaded.get(0).isPurchased());
+        assertEquals(productManager.getListStatistics("L1"), new ProductManager(context).getListStatistics("L1"));
+    }
+
+    @Test
+    public void replaySurvivesCompactionAndATornLastLine() throws Exception {
+        List<String> expected = new ArrayList<>();
+        // Enough records to pass the compaction threshold more than once
+        for (int i = 0; i < 600; i++) {
+            Product product = product("Product " + i, "L1");
+            product.setNotes("Notes long enough to make the log grow quickly " + i);
+            productManager.addProduct(product);
+            expected.add(product.getName());
+        }
+        PersistenceExecutor.flush();
+        File productsDir = new File(context.getFilesDir(), "products");
+        assertTrue(new File(productsDir, "L1.snap").exists());
+
+        File logFile = new File(productsDir, "L1.log");
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write("{\"op\":\"add\",\"id\":\"12".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(expected, names(reload("L1")));
+        assertFalse(productManager.hasReadError("L1"));
+    }
+
+    @Test
+    public void failedBatchStoresNothing() {
+        Product milk = product("Milk", "L1");
+        productManager.addProduct(milk);
+        PersistenceExecutor.flush();
+        String statistics = productManager.getListStatistics("L1");
+
+        Product renamed = new Product(milk);
+        renamed.setName("Oat milk");
+        boolean committed = productManager.beginBatch()
+                .add(product("Bread", "L1"))
+                .add(product("Apples", "L2"))
+                .update(renamed)
+                .delete(123L) // Unknown, fails the whole batch
+                .commit();
+
+        assertFalse(committed);
+        assertEquals(Arrays.asList("Milk"), names(productManager.getProductsForList("L1")));
+        assertTrue(productManager.getProductsForList("L2").isEmpty());
+        assertEquals(statistics, productManager.getListStatistics("L1"));
+        assertEquals(Arrays.asList("Milk"), names(reload("L1")));
+        assertTrue(reload("L2").isEmpty());
+    }
+
+    @Test
+    public void batchAcrossListsStoresEverything() {
+        Product milk = product("Milk", "L1");
+        productManager.addProduct(milk);
+
+        Product bread = product("Bread", "L1");
+        Product apples = product("Apples", "L2");
+        boolean committed = productManager.beginBatch()
+                .add(bread)
+                .add(apples)
+                .delete(milk.getId())
+                .delete(bread.getId()) // Added earlier in the same batch
+                .commit();
+
+        assertTrue(committed);
+        assertTrue(reload("L1").isEmpty());
+        assertEquals(Arrays.asList("Apples"), names(reload("L2")));
+        assertNotNull(new ProductManager(context).deleteProduct(apples.getId()));
+    }
+
+    // Drop every cached list and read it back from the snapshot and log
+    @Test
+    public void compactionWaitsForQueuedIndexLines() throws Exception {
+        productManager.getProductsForList("L1"); // Builds the index before its log is blocked
+        PersistenceExecutor.flush();
+        // A directory where the index log should be makes every write fail
+        File productsDir = new File(context.getFilesDir(), "products");
+        File indexLog = new File(productsDir, "_index.log");
+        assertTrue(indexLog.delete());
+        assertTrue(indexLog.mkdir());
+
+        for (int i = 0; i < 600; i++) {
+            Product product = product("Product " + i, "L1");
+            product.setNotes("Notes long enough to make the log grow quickly " + i);
+            productManager.addProduct(product);
+        }
+        assertFalse(PersistenceExecutor.flush());
+        // The index lines are still queued, so the list was not compacted
+        assertFalse(new File(productsDir, "L1.snap").exists());
+
+        assertTrue(indexLog.delete());
+        productManager.addProduct(product("Last", "L1"));
+        assertTrue(PersistenceExecutor.flush());
+        assertTrue(new File(productsDir, "L1.snap").exists());
+        assertEquals(601, countLines(indexLog, "\"op\":\"index\""));
+        assertEquals(601, reload("L1").size());
+    }
+
+    private static int countLines(File file, String text) throws IOException {
+        int count = 0;
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (line.contains(text)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private List<Product> reload(String listCode) {
+        PersistenceExecutor.flush();
+        ProductCache.getInstance().clear();
+        return new ProductManager(context).getProductsForList(listCode);
+    }
+
+    private static Product product(String name, String listCode) {
+        Product product = new Product(name, "Food", 1, "a@example.com", listCode, "", 1.0);
+        product.setId(IdGenerator.nextId());
+        return product;
+    }
+
+    private static List<String> names(List<Product> products) {
+        List<String> names = new ArrayList<>();
+        for (Product product : products) {
+            names.add(product.getName());
+        }
+        return names;
+    }
+}
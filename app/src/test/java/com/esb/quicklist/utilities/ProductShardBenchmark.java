@@ -0,0 +1,122 @@
+package com.esb.quicklist.utilities;
+
+import com.esb.quicklist.models.Product;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Micro-benchmark of the product index: ProductShard against the
+ * HashMap&lt;String, Product&gt; it replaced, at 1k, 10k and 100k products.
+ * Timings are printed, only the results are asserted. Skipped unless the
+ * tests are run with -Pbenchmark, e.g.
+ * ./gradlew :app:testDebugUnitTest --tests '*ProductShardBenchmark' -Pbenchmark
+ */
+public class ProductShardBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void compareWithHashMap() {
+        Assume.assumeTrue("Run with -Pbenchmark", Boolean.getBoolean("quicklist.benchmark"));
+        for (int size : SIZES) {
+            Product[] products = createProducts(size);
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                runHashMap(products);
+                runShard(products);
+            }
+
+            long hashMapNanos = Long.MAX_VALUE;
+            long shardNanos = Long.MAX_VALUE;
+            for (int i = 0; i < ROUNDS; i++) {
+                long start = System.nanoTime();
+                int hashMapResult = runHashMap(products);
+                hashMapNanos = Math.min(hashMapNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                int shardResult = runShard(products);
+                shardNanos = Math.min(shardNanos, System.nanoTime() - start);
+
+                assertEquals(hashMapResult, shardResult);
+            }
+
+            System.out.printf("%,d products: HashMap<String, Product> %.2f ms, ProductShard %.2f ms%n",
+                    size, hashMapNanos / 1e6, shardNanos / 1e6);
+        }
+    }
+
+    private static Product[] createProducts(int size) {
+        Product[] products = new Product[size];
+        for (int i = 0; i < size; i++) {
+            products[i] = new Product("Product " + i, "Category " + (i % 20), 1, "bench@example.com", "BENCH", "", 1.0);
+            products[i].setPurchased(i % 3 == 0);
+        }
+        return products;
+    }
+
+    // Load, look every product up, toggle a third of them, count purchased and
+    // toggle them back, then delete half - the steps a shard goes through in
+    // ProductManager. The products are shared between runs, so leave them as found.
+    private static int runHashMap(Product[] products) {
+        Map<String, Product> map = new HashMap<>();
+        for (Product product : products) {
+            map.put(String.valueOf(product.getId()), product);
+        }
+        int found = 0;
+        for (Product product : products) {
+            if (map.get(String.valueOf(product.getId())) != null) {
+                found++;
+            }
+        }
+        for (int i = 0; i < products.length; i += 3) {
+            Product product = map.get(String.valueOf(products[i].getId()));
+            product.setPurchased(!product.isPurchased());
+        }
+        int purchased = 0;
+        for (Product product : map.values()) {
+            if (product.isPurchased()) {
+                purchased++;
+            }
+        }
+        for (int i = 0; i < products.length; i += 3) {
+            Product product = map.get(String.valueOf(products[i].getId()));
+            product.setPurchased(!product.isPurchased());
+        }
+        for (int i = 0; i < products.length; i += 2) {
+            map.remove(String.valueOf(products[i].getId()));
+        }
+        return found + purchased + map.size();
+    }
+
+    private static int runShard(Product[] products) {
+        ProductShard shard = new ProductShard();
+        for (Product product : products) {
+            shard.put(product);
+        }
+        int found = 0;
+        for (Product product : products) {
+            if (shard.get(product.getId()) != null) {
+                found++;
+            }
+        }
+        for (int i = 0; i < products.length; i += 3) {
+            long productId = products[i].getId();
+            shard.setPurchased(productId, !shard.get(productId).isPurchased());
+        }
+        int purchased = shard.getPurchasedCount();
+        for (int i = 0; i < products.length; i += 3) {
+            long productId = products[i].getId();
+            shard.setPurchased(productId, !shard.get(productId).isPurchased());
+        }
+        for (int i = 0; i < products.length; i += 2) {
+            shard.remove(products[i].getId());
+        }
+        return found + purchased + shard.size();
+    }
+}
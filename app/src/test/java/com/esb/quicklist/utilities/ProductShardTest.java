@@ -0,0 +1,117 @@
+package com.esb.quicklist.utilities;
+
+import com.esb.quicklist.models.Product;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProductShardTest {
+
+    @Test
+    public void keepsListOrderWhenReplacingAndRemoving() {
+        ProductShard shard = new ProductShard();
+        shard.put(product(1, "Milk", false, 1, 1.25));
+        shard.put(product(2, "Bread", false, 1, 2.00));
+        shard.put(product(3, "Eggs", false, 1, 3.10));
+
+        shard.put(product(2, "Rye bread", false, 1, 2.50));
+        assertEquals(Arrays.asList("Milk", "Rye bread", "Eggs"), names(shard));
+
+        assertEquals("Milk", shard.remove(1).getName());
+        assertNull(shard.remove(1));
+        assertFalse(shard.containsKey(1));
+        assertEquals(Arrays.asList("Rye bread", "Eggs"), names(shard));
+        assertEquals(2, shard.size());
+    }
+
+    @Test
+    public void purchasedCountFollowsPutsTogglesAndRemoves() {
+        ProductShard shard = new ProductShard();
+        for (int i = 0; i < 100; i++) {
+            shard.put(product(i, "P" + i, i % 4 == 0, 1, 0.0));
+        }
+        assertEquals(25, shard.getPurchasedCount());
+
+        shard.setPurchased(1, true);
+        shard.setPurchased(0, false);
+        assertEquals(25, shard.getPurchasedCount());
+        assertTrue(shard.get(1).isPurchased());
+
+        shard.put(product(1, "P1", false, 1, 0.0));
+        shard.remove(4);
+        shard.remove(5);
+        assertEquals(23, shard.getPurchasedCount());
+    }
+
+    @Test
+    public void totalCostFollowsPutsAndRemoves() {
+        ProductShard shard = new ProductShard();
+        shard.put(product(1, "Milk", false, 2, 1.25));
+        shard.put(product(2, "Bread", false, 1, 2.10));
+        assertEquals(4.60, shard.getTotalCost(), 1e-9);
+
+        shard.put(product(1, "Milk", false, 3, 1.25));
+        assertEquals(5.85, shard.getTotalCost(), 1e-9);
+
+        shard.remove(2);
+        assertEquals(3.75, shard.getTotalCost(), 1e-9);
+    }
+
+    @Test
+    public void compactionAfterManyRemovesKeepsOrderBitsAndTotals() {
+        ProductShard shard = new ProductShard();
+        for (int i = 0; i < 1_000; i++) {
+            shard.put(product(i, "P" + i, i % 2 == 0, 1, 1.0));
+        }
+        // Drop three out of four, which compacts the dense array more than once
+        for (int i = 0; i < 1_000; i++) {
+            if (i % 4 != 0) {
+                shard.remove(i);
+            }
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1_000; i += 4) {
+            expected.add("P" + i);
+        }
+        assertEquals(expected, names(shard));
+        assertEquals(250, shard.size());
+        assertEquals(250, shard.getPurchasedCount());
+        assertEquals(250.0, shard.getTotalCost(), 1e-9);
+        assertEquals("P996", shard.get(996).getName());
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        ProductShard shard = new ProductShard();
+        shard.put(product(1, "Milk", false, 1, 1.0));
+        ProductShard copy = new ProductShard(shard);
+
+        copy.setPurchased(1, true);
+        copy.remove(1);
+
+        assertFalse(shard.get(1).isPurchased());
+        assertEquals(1, shard.size());
+        assertEquals(0, shard.getPurchasedCount());
+    }
+
+    private static Product product(long id, String name, boolean purchased, int quantity, double price) {
+        Product product = new Product(name, "Food", quantity, "a@example.com", "L1", "", price);
+        product.setId(id);
+        product.setPurchased(purchased);
+        return product;
+    }
+
+    private static List<String> names(ProductShard shard) {
+        List<String> names = new ArrayList<>();
+        for (Product product : shard) {
+            names.add(product.getName());
+        }
+        return names;
+    }
+}
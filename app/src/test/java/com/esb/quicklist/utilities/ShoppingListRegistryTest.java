@@ -0,0 +1,56 @@
+package com.esb.quicklist.utilities;
+
+import com.esb.quicklist.models.ShoppingList;
+import com.esb.quicklist.storage.KeyValueStore;
+import com.esb.quicklist.storage.MemoryStore;
+import com.esb.quicklist.storage.PersistenceExecutor;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class ShoppingListRegistryTest {
+
+    @After
+    public void tearDown() {
+        PersistenceExecutor.flush();
+    }
+
+    @Test
+    public void seedsTheAllocatorWithStoredAndDeletedCodes() {
+        KeyValueStore store = new MemoryStore();
+        ShoppingListRegistry registry = ShoppingListRegistry.forStore(store);
+        assertTrue(registry.put(new ShoppingList("ABCDEF", "Groceries", "a@example.com")));
+        assertTrue(registry.put(new ShoppingList("GHJKLM", "Hardware", "a@example.com")));
+        PersistenceExecutor.flush();
+        KeyValueStore.Batch batch = store.batch();
+        assertTrue(registry.remove("GHJKLM", batch));
+        assertTrue(batch.commit());
+
+        ShoppingListRegistry restarted = ShoppingListRegistry.forStore(copyOf(store));
+
+        assertNotSame(registry, restarted);
+        assertNotNull(restarted.get("ABCDEF"));
+        assertNull(restarted.get("GHJKLM"));
+        assertTrue(restarted.isCodeUsed("ABCDEF"));
+        assertTrue(restarted.isCodeUsed("GHJKLM"));
+        assertFalse(restarted.isCodeUsed("NPQRST"));
+    }
+
+    // What a new process reads back from the same storage
+    private static KeyValueStore copyOf(KeyValueStore store) {
+        KeyValueStore copy = new MemoryStore();
+        KeyValueStore.Batch batch = copy.batch();
+        for (Map.Entry<String, String> entry : store.scan("").entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+        }
+        batch.commit();
+        return copy;
+    }
+}